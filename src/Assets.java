@@ -0,0 +1,123 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class holds the text files the game prints, such as its ASCII
+ * art, which are kept next to its classes. Each file is read the first
+ * time it's needed and kept in memory as UTF-8, ready to be written to
+ * a game's output as it is, so it's shared by every game being played.
+ * Every line of a file ends with a new line, whatever line endings the
+ * file was saved with.
+ * <p>
+ * It also records how often a file was already in memory when it was
+ * needed.
+ */
+public class Assets {
+    private static final ConcurrentHashMap<String, byte[]> ASSETS = new ConcurrentHashMap<>();   // The contents of each file read, by name
+    private static final AtomicLong HITS = new AtomicLong();        // Files that were already in memory when needed
+    private static final AtomicLong LOADS = new AtomicLong();       // Files that had to be read
+
+    /**
+     * Assets only has static methods.
+     */
+    private Assets() {
+    }
+
+    /**
+     * Return the contents of a file, reading it if it
+     * hasn't been read before.
+     * @param name The name of the file.
+     * @return The contents of the file as UTF-8, which must not be
+     * changed, or null if there is no file with that name.
+     */
+    public static byte[] get(String name) {
+        byte[] contents = ASSETS.get(name);
+        if (contents != null) {
+            HITS.incrementAndGet();
+            return contents;
+        }
+        contents = load(name);
+        if (contents != null) {
+            ASSETS.putIfAbsent(name, contents);
+            LOADS.incrementAndGet();
+        }
+        return contents;
+    }
+
+    /**
+     * Read files into memory before they're first needed,
+     * so no game has to wait for them.
+     * @param names The names of the files.
+     */
+    public static void preload(String... names) {
+        for (String name : names) {
+            if (!ASSETS.containsKey(name) && get(name) == null) {
+                System.err.println(name + " not found");
+            }
+        }
+    }
+
+    /**
+     * Read a file, ending every line with a new line.
+     * @return The contents of the file as UTF-8, or null if there is no such file.
+     */
+    private static byte[] load(String name) {
+        InputStream stream = Assets.class.getResourceAsStream(name);
+        if (stream == null) {
+            return null;
+        }
+        StringBuilder text = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                text.append(line).append('\n');
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The number of times a file was already in memory when it was needed.
+     */
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    /**
+     * @return The number of times a file had to be read.
+     */
+    public static long getLoads() {
+        return LOADS.get();
+    }
+
+    /**
+     * Return how often a file was already in memory when it was needed.
+     * @return The fraction of requests for files that didn't read them.
+     */
+    public static double getHitRate() {
+        long hits = HITS.get();
+        long total = hits + LOADS.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Return a summary of the files in memory and how often they were used.
+     * @return The summary.
+     */
+    public static String summary() {
+        long bytes = 0;
+        for (byte[] contents : ASSETS.values()) {
+            bytes += contents.length;
+        }
+        return "Assets: " + ASSETS.size() + " (" + bytes + " bytes)"
+                + ", hit rate: " + String.format("%.3f", getHitRate())
+                + ", loads: " + getLoads();
+    }
+}
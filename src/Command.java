@@ -8,10 +8,15 @@
  * obviously are "take" and "map").
  * <p>
  * The way this is used is: Commands are already checked for being valid
- * command words. If the user entered an invalid command (a word that is not
- * known) then the command word is <null>.
+ * command words, and hold the handler that executes them. If the user
+ * entered an invalid command (a word that is not known) then the command
+ * word and handler are <null>.
  * <p>
  * If the command had only one word, then the second word is <null>.
+ * <p>
+ * The second and third words are also looked up in the game's Symbols
+ * once, when the command is created, so the items they name can be
+ * found without comparing names.
  *
  * @author Michael Kölling and David J. Barnes
  * @version 2016.02.29
@@ -19,8 +24,11 @@
 
 public class Command {
     private final String commandWord;
+    private final CommandHandler handler;
     private final String secondWord;
     private final String thirdWord;
+    private final int secondSymbol;     // the symbol of the second word, -1 if it doesn't have one
+    private final int thirdSymbol;      // the symbol of the third word, -1 if it doesn't have one
 
     /**
      * Create a command object. First and second word must be supplied, but
@@ -28,13 +36,18 @@ public class Command {
      *
      * @param firstWord  The first word of the command. Null if the command
      *                   was not recognised.
+     * @param handler    The handler that executes the command. Null if the
+     *                   command was not recognised.
      * @param secondWord The second word of the command.
      * @param thirdWord The third word of the command.
      */
-    public Command(String firstWord, String secondWord, String thirdWord) {
+    public Command(String firstWord, CommandHandler handler, String secondWord, String thirdWord) {
         commandWord = firstWord;
+        this.handler = handler;
         this.secondWord = secondWord;
         this.thirdWord = thirdWord;
+        secondSymbol = Symbols.lookup(secondWord);
+        thirdSymbol = Symbols.lookup(thirdWord);
     }
 
     /**
@@ -47,6 +60,16 @@ public class Command {
         return commandWord;
     }
 
+    /**
+     * Return the handler that executes this command. If the
+     * command was not understood, the result is null.
+     *
+     * @return The handler of the command.
+     */
+    public CommandHandler getHandler() {
+        return handler;
+    }
+
     /**
      * @return The second word of this command. Returns null if there was no
      * second word.
@@ -63,6 +86,22 @@ public class Command {
         return thirdWord;
     }
 
+    /**
+     * @return The symbol of the second word of this command. Returns -1
+     * if there was no second word, or no name has that symbol.
+     */
+    public int getSecondSymbol() {
+        return secondSymbol;
+    }
+
+    /**
+     * @return The symbol of the third word of this command. Returns -1
+     * if there was no third word, or no name has that symbol.
+     */
+    public int getThirdSymbol() {
+        return thirdSymbol;
+    }
+
     /**
      * @return true if this command was not understood.
      */
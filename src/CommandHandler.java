@@ -0,0 +1,15 @@
+/**
+ * This interface is implemented by the objects that carry out
+ * commands. Each command word is registered with a handler in
+ * CommandWords, so once a command has been parsed it can be
+ * executed without checking its command word again.
+ */
+public interface CommandHandler {
+
+    /**
+     * Execute a command.
+     * @param command The command to execute.
+     * @return true If the command ends the game, false otherwise.
+     */
+    boolean execute(Command command);
+}
@@ -1,42 +1,198 @@
+import java.util.ArrayList;
+
 /**
  * This class is part of the "World of Zuul" application.
  * "World of Zuul" is a very simple, text based adventure game.
  * <p>
- * This class holds an enumeration of all command words known to the game.
+ * This class holds all command words known to the game, along with
+ * the handler that executes each one and the help shown for it.
  * It is used to recognise commands as they are typed in.
+ * <p>
+ * Command words and their aliases are stored in an open addressing
+ * hash table that is kept at most half full, so looking up a word
+ * takes the same time however many words are registered. Words can
+ * be looked up straight from a Tokenizer without creating a String.
  *
  * @author Michael Kölling and David J. Barnes
  * @version 2016.02.29
  */
 
 public class CommandWords {
-    // a constant array that holds all valid command words
-    private static final String[] COMMANDS = {
-            "go", "quit", "help", "investigate", "cast", "take", "use", "inventory", "back", "drop"
-    };
+    private String[] keys;                  // the words and aliases in the table
+    private String[] words;                 // the command word each key stands for
+    private CommandHandler[] handlers;      // the handler for each key
+    private Runnable[] helps;               // the help for each key
+    private int size;                       // the number of keys in the table
+    private final ArrayList<String> commands;   // the command words in the order they were registered
+
+    /**
+     * Create an empty set of command words.
+     */
+    public CommandWords() {
+        keys = new String[16];
+        words = new String[16];
+        handlers = new CommandHandler[16];
+        helps = new Runnable[16];
+        size = 0;
+        commands = new ArrayList<>();
+    }
+
+    /**
+     * Register a command word along with the handler that executes it.
+     * If the word is already registered, it is replaced.
+     *
+     * @param word    The command word.
+     * @param handler The handler that executes the command.
+     * @param help    Prints information about the command.
+     */
+    public void register(String word, CommandHandler handler, Runnable help) {
+        if (!isCommand(word)) {
+            commands.add(word);
+        }
+        put(word, word, handler, help);
+    }
+
+    /**
+     * Register another word that does the same thing as a command word.
+     * Aliases are recognised as commands but aren't listed by showAll.
+     *
+     * @param alias The new word.
+     * @param word  The command word it stands for, which must be registered.
+     */
+    public void addAlias(String alias, String word) {
+        int slot = findSlot(word, word.hashCode());
+        if (keys[slot] == null) {
+            throw new IllegalArgumentException(word + " is not a command word");
+        }
+        put(alias, words[slot], handlers[slot], helps[slot]);
+    }
+
+    /**
+     * Add a key to the table, growing the table first if it would
+     * become more than half full.
+     */
+    private void put(String key, String word, CommandHandler handler, Runnable help) {
+        if ((size + 1) * 2 > keys.length) {
+            resize();
+        }
+        int slot = findSlot(key, key.hashCode());
+        if (keys[slot] == null) {
+            size++;
+        }
+        keys[slot] = key;
+        words[slot] = word;
+        handlers[slot] = handler;
+        helps[slot] = help;
+    }
+
+    /**
+     * Double the size of the table, moving every key to its new slot.
+     */
+    private void resize() {
+        String[] oldKeys = keys;
+        String[] oldWords = words;
+        CommandHandler[] oldHandlers = handlers;
+        Runnable[] oldHelps = helps;
+
+        keys = new String[oldKeys.length * 2];
+        words = new String[keys.length];
+        handlers = new CommandHandler[keys.length];
+        helps = new Runnable[keys.length];
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = findSlot(oldKeys[i], oldKeys[i].hashCode());
+                keys[slot] = oldKeys[i];
+                words[slot] = oldWords[i];
+                handlers[slot] = oldHandlers[i];
+                helps[slot] = oldHelps[i];
+            }
+        }
+    }
+
+    /**
+     * Return the slot holding a key, or the empty slot where it would go.
+     */
+    private int findSlot(String key, int hash) {
+        int mask = keys.length - 1;
+        int slot = spread(hash) & mask;
+        while (keys[slot] != null && !keys[slot].equals(key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Return the slot holding the first word of the tokenizer's
+     * current line, or the empty slot where it would go.
+     */
+    private int findSlot(Tokenizer tokenizer) {
+        int mask = keys.length - 1;
+        int slot = spread(tokenizer.wordHashCode(0)) & mask;
+        while (keys[slot] != null && !tokenizer.wordEquals(0, keys[slot])) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Mix the high bits of a hash code into the low bits used to pick a slot.
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
 
     /**
      * Check whether a given String is a valid command word.
      *
      * @return true if it is, false if it isn't.
      */
-    public static boolean isCommand(String aString) {
-        //for(int i = 0; i < COMMANDS.length; i++) {
-        for (String command : COMMANDS) {
-            if (command.equals(aString))
-                return true;
+    public boolean isCommand(String aString) {
+        return aString != null && keys[findSlot(aString, aString.hashCode())] != null;
+    }
+
+    /**
+     * Create a command from the words of the tokenizer's current line.
+     * If the first word is a command word the command holds the shared
+     * copy of it and its handler, otherwise the command is unknown.
+     *
+     * @param tokenizer The tokenizer holding the line.
+     * @return The command.
+     */
+    public Command getCommand(Tokenizer tokenizer) {
+        String secondWord = tokenizer.getWord(1);
+        String thirdWord = tokenizer.getWord(2);
+        if (tokenizer.getWordCount() == 0) {
+            return new Command(null, null, secondWord, thirdWord);
         }
-        // if we get here, the string was not found in the commands
-        return false;
+        int slot = findSlot(tokenizer);
+        return new Command(words[slot], handlers[slot], secondWord, thirdWord);
     }
 
     /**
-     * Print all valid commands to System.out.
+     * Print information about a command word.
+     *
+     * @param word The command word.
+     * @return Whether or not the word is a command word.
+     */
+    public boolean showHelp(String word) {
+        int slot = findSlot(word, word.hashCode());
+        if (keys[slot] == null) {
+            return false;
+        }
+        helps[slot].run();
+        return true;
+    }
+
+    /**
+     * Print all valid commands to a given output.
+     *
+     * @param out The output to print to.
      */
-    public static void showAll() {
-        for (String command : COMMANDS) {
-            System.out.print(command + "  ");
+    public void showAll(GameOutput out) {
+        for (String command : commands) {
+            out.print(command + "  ");
         }
-        System.out.println();
+        out.println();
     }
 }
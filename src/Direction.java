@@ -0,0 +1,59 @@
+/**
+ * This enum holds the directions an exit from a room can lead in.
+ * Each direction has a position, its ordinal, so a room's exits can
+ * be stored in a small array rather than a map.
+ * <p>
+ * The directions are listed in the order a room's exits are shown
+ * to the player.
+ */
+public enum Direction {
+    EAST("east"),
+    SOUTH("south"),
+    NORTH("north"),
+    WEST("west");
+
+    public static final int COUNT = 4;                      // The number of directions
+    private static final Direction[] VALUES = values();     // Every direction, by ordinal
+
+    private final String name;      // The name of the direction, as typed by the player
+
+    /**
+     * Create a direction.
+     * @param name The name of the direction, as typed by the player.
+     */
+    Direction(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Return the direction with a given name. There are only a few,
+     * so they are compared in turn without hashing the name.
+     * @param name The name of the direction.
+     * @return The direction, or null if there is no direction with that name.
+     */
+    public static Direction fromName(String name) {
+        for (Direction direction : VALUES) {
+            if (direction.name.equals(name)) {
+                return direction;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the direction with a given ordinal.
+     * @param ordinal The ordinal of the direction.
+     * @return The direction.
+     */
+    public static Direction fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * @return The name of the direction, as typed by the player.
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -1,4 +1,6 @@
-import java.util.ArrayList;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 
 /**
  * This class is a type of room that can 'move', changing
@@ -6,30 +8,22 @@ import java.util.ArrayList;
  * unconnected 'chunks' of rooms
  */
 public class Elevator extends Room {
-    private int currentFloorNumber; //The floor the elevator is currently on
-    private final ArrayList<Room> floorExits; //The exits the elevator can have, based on it's floor
+    private final RoomTemplate template;    // Holds the exits the elevator can have, based on it's floor
+    private final RoomRegistry world;       // The rooms of the game, by id
+    private int currentFloorNumber;         // The floor the elevator is currently on
 
     /**
      * Alongside using the constructor of Room, the floor
      * it starts that is also set here. This refers to which
-     * of the floorExits is 'active'.
-     * @param roomName The name of the room.
-     * @param description A description of the room.
-     * @param dark Whether or not the room is dark.
-     * @param startingFloorNumber The floor at which the elevator starts.
+     * of the template's floor exits is 'active'.
+     * @param template The template of the elevator.
+     * @param world The rooms of the game, by id.
      */
-    public Elevator(String roomName, String description, boolean dark, int startingFloorNumber) {
-        super(roomName, description, dark);
-        this.currentFloorNumber = startingFloorNumber;
-        floorExits = new ArrayList<>();
-    }
-
-    /**
-     * Add an exit to the list of exits the elevator can 'move' between.
-     * @param exitRoom The room to add to the list.
-     */
-    public void addFloorExit(Room exitRoom) {
-        floorExits.add(exitRoom);
+    public Elevator(RoomTemplate template, RoomRegistry world) {
+        super(template, world);
+        this.template = template;
+        this.world = world;
+        this.currentFloorNumber = template.getStartingFloorNumber();
     }
 
     /**
@@ -38,7 +32,7 @@ public class Elevator extends Room {
      * @return The Room at the floor.
      */
     private Room getFloorExit(int floorNumber) {
-        return floorExits.get(floorNumber - 1);
+        return world.get(template.getFloorExit(floorNumber));
     }
 
     /**
@@ -49,6 +43,14 @@ public class Elevator extends Room {
         return getFloorExit(currentFloorNumber);
     }
 
+    /**
+     * Return the floor the elevator is currently on.
+     * @return The current floor number.
+     */
+    public int getCurrentFloorNumber() {
+        return currentFloorNumber;
+    }
+
     /**
      * Move the elevator to a given floor.
      * @param floorNumber The number of the floor.
@@ -56,9 +58,9 @@ public class Elevator extends Room {
     public boolean move(int floorNumber) {
 
         if (!(currentFloorNumber == floorNumber)) {
-            getCurrentFloorExit().removeExit("south");
-            setExit("north", getFloorExit(floorNumber));
-            getCurrentFloorExit().setExit("south", this);
+            getCurrentFloorExit().removeExit(Direction.SOUTH);
+            setExit(Direction.NORTH, getFloorExit(floorNumber));
+            getCurrentFloorExit().setExit(Direction.SOUTH, this);
             currentFloorNumber = floorNumber;
             return true;
         } else {
@@ -66,6 +68,38 @@ public class Elevator extends Room {
         }
     }
 
+    /**
+     * Return whether the elevator is any different, including
+     * its floor, from how it was at the start of the game.
+     * @return Whether or not the elevator has changed.
+     */
+    @Override
+    public boolean hasChanged() {
+        return super.hasChanged() || currentFloorNumber != template.getStartingFloorNumber();
+    }
+
+    /**
+     * Write the state of the elevator, including its floor, to a saved game.
+     * @param out The stream to write to.
+     * @throws IOException If the elevator could not be written.
+     */
+    @Override
+    public void writeState(DataOutputStream out) throws IOException {
+        super.writeState(out);
+        out.writeInt(currentFloorNumber);
+    }
+
+    /**
+     * Replace the state of the elevator, including its floor, with that in a saved game.
+     * @param in The stream to read from.
+     * @throws IOException If the elevator could not be read.
+     */
+    @Override
+    public void readState(DataInputStream in) throws IOException {
+        super.readState(in);
+        currentFloorNumber = in.readInt();
+    }
+
     /**
      * If the player enters the Elevator from a room that
      * can be one of it's exits. Move the elevator so that
@@ -73,8 +107,11 @@ public class Elevator extends Room {
      * @param room The room the player is entering from.
      */
     public void enterFromRoom(Room room) {
-        if (floorExits.contains(room)) {
-            move(floorExits.indexOf(room) + 1);
+        for (int floorNumber = 1; floorNumber <= template.getFloorCount(); floorNumber++) {
+            if (getFloorExit(floorNumber) == room) {
+                move(floorNumber);
+                return;
+            }
         }
     }
 }
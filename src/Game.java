@@ -1,10 +1,13 @@
 import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.Stack;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Random;
-import java.util.Scanner;
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Reader;
 
 /**
  * This class is based on the "World of Zuul" application.
@@ -20,150 +23,169 @@ import java.io.BufferedReader;
  */
 
 public class Game {
+    private static final WorldTemplate TOWER = loadTower();   // The map shared by every game
+    private static final int SAVE_MAGIC = 0x43575431;   // "CWT1", marks the start of a saved game
+    private static final int SAVE_VERSION = 10;         // The version of the saved game format
+    private static final int HISTORY_DEPTH = 100;       // The most rooms the player can go back through
+
+    // The spells of the tower, listed in this order in the spellbook
+    private static final Spell ILLUMINATE = Spells.register("illuminate", false, Game::illuminate);
+    private static final Spell IDENTIFY = Spells.register("identify", false, Game::identify);
+    private static final Spell ELIMINATE = Spells.register("eliminate", true, Game::eliminate);
+    private static final Spell REJUVENATE = Spells.register("rejuvenate", true, Game::rejuvenate);
+    private static final Spell MESMERIZE = Spells.register("mesmerize", true, Game::mesmerize);
+    private static final Spell DESCEND = Spells.register("descend", true, Game::descend);
+
     private final Parser parser;              // An instance of the parser class
-    private final ArrayList<Room> rooms;      // A list of rooms in the game
+    private final CommandWords commandWords;  // The command words and their handlers
+    private final WorldTemplate map;          // The map the game is played on
+    private final RoomRegistry world;         // The rooms in the game, by id and by name
     private boolean bossIdentified;     // Whether the boss of the game has been identified or not
     private NPCs npcs;                  // An instance of the NPCs class
-    private final Scanner scanner;
     private final Player player;
+    private final GameClock clock;            // Controls how long the game pauses for
+    private final GameOutput out;             // Where the game's text is printed
+    private final Journal journal;            // Records everything that happens in the game
+    private long randomSeed;                  // The seed of the next random event
+    private IdleHandler idleHandler;          // Decides when to suspend the game, null to never suspend it
+    private boolean suspended;                // Whether the game stopped to wait for a command without ending
 
     /**
      * Create the game and initialise its internal map,
-     * the player, NPCs, and items.
+     * the player, NPCs, and items. The game pauses in real time.
      */
     public Game() {
-        player = new Player(10, Spells.getSpellNames());
-        rooms = new ArrayList<>();
-        parser = new Parser();
-        scanner = new Scanner(System.in);
-        setupRooms();
-        setupItems();
-        setupNpcs();
-        bossIdentified = false;
+        this(GameClock.realTime());
     }
 
     /**
-     * Create all the rooms and link their exits together.
+     * Create the game and initialise its internal map,
+     * the player, NPCs, and items. The game is played
+     * on the terminal.
+     * @param clock The clock that controls how long the game pauses for.
      */
-    private void setupRooms() {
-        Room stoneRoom, chestRoom, shop, workshop, library, armory,
-                soldiersQuarters, lab, dungeon, trollsRoom, theatre, bossRoom, teleporterRoom;
-
-        Elevator elevator;
-        // create the rooms
-
-        elevator = new Elevator("elevator", "in an elevator", false, 1);
-
-        stoneRoom = new Room("stoneRoom", "in an empty room with stone walls", true);
-        chestRoom = new Room("chestRoom", "in a room containing many old, opened chests", false);
-        shop = new Room("shop", "in a small shop", false);
-        workshop = new Room("workshop", "in a metal workshop containing a high tech forge", true);
-
-        library = new Room("library", "in a library", false);
-        armory = new Room("armory", "in an armory", false);
-        soldiersQuarters = new Room("soldiersQuarters", "in the soldiers' quarters", false);
-        lab = new Room("lab", "in a science lab", true);
-        dungeon = new Room("dungeon", "in a dungeon", true);
-
-        trollsRoom = new Room("trollsRoom", "in a narrow hallway", false);
-        theatre = new Room("theatre", "in a theatre. You can feel an ominous presence nearby", true);
-        bossRoom = new Room("bossRoom", "in a large lavish room", false);
-
-        teleporterRoom = new Room("teleporterRoom", "in a room filled with a bright light", false);
-
-        // setup rooms HashMap
-        rooms.add(elevator);
-
-        rooms.add(stoneRoom);
-        rooms.add(chestRoom);
-        rooms.add(shop);
-        rooms.add(workshop);
-
-        rooms.add(library);
-        rooms.add(armory);
-        rooms.add(soldiersQuarters);
-        rooms.add(lab);
-        rooms.add(dungeon);
-
-        rooms.add(trollsRoom);
-        rooms.add(theatre);
-        rooms.add(bossRoom);
-
-        rooms.add(teleporterRoom);
-
-        // initialise room exits
-        elevator.setExit("north", workshop);
-
-        // floor 1
-        stoneRoom.setExit("east", chestRoom);
-
-        chestRoom.setExit("west", stoneRoom);
-        chestRoom.setExit("north", shop);
-        chestRoom.setExit("east", workshop);
-
-        shop.setExit("south", chestRoom);
-
-        workshop.setExit("west", chestRoom);
-        workshop.setExit("south", elevator);
-        workshop.setExit("east", teleporterRoom);
-
-        teleporterRoom.setExit("west", workshop);
-
-        // floor 2
-        library.setExit("north", armory);
-        library.setExit("south", elevator);
-
-        armory.setExit("north", lab);
-        armory.setExit("east", dungeon);
-        armory.setExit("west", soldiersQuarters);
-        armory.setExit("south", library);
-
-        lab.setExit("south", armory);
-
-        soldiersQuarters.setExit("east", armory);
-
-        dungeon.setExit("west", armory);
-
-        // floor 3
-        trollsRoom.setExit("south", elevator);
-        trollsRoom.setExit("north", theatre);
-
-        theatre.setExit("east", bossRoom);
-        theatre.setExit("south", trollsRoom);
+    public Game(GameClock clock) {
+        this(new InputStreamReader(System.in), GameOutput.toTerminal(), clock);
+    }
 
-        bossRoom.setExit("west", theatre);
+    /**
+     * Create the game and initialise its internal map,
+     * the player, NPCs, and items.
+     * @param input The source of the player's input.
+     * @param out   The output the game's text is printed to.
+     * @param clock The clock that controls how long the game pauses for.
+     */
+    public Game(Reader input, GameOutput out, GameClock clock) {
+        this(input, out, clock, new Random().nextLong());
+    }
 
-        // set elevator exits
-        elevator.addFloorExit(workshop);
-        elevator.addFloorExit(library);
-        elevator.addFloorExit(trollsRoom);
+    /**
+     * Create the game and initialise its internal map,
+     * the player, NPCs, and items. Random events in the game
+     * are based on a given seed, so two games with the same
+     * seed and the same input play out exactly the same.
+     * @param input The source of the player's input.
+     * @param out   The output the game's text is printed to.
+     * @param clock The clock that controls how long the game pauses for.
+     * @param seed  The seed of the game's random events.
+     */
+    public Game(Reader input, GameOutput out, GameClock clock, long seed) {
+        this(input, out, clock, seed, TOWER);
+    }
 
-        player.goToRoom(stoneRoom);  // start game in the stone room
+    /**
+     * Create the game on a given map, such as one made by a
+     * TowerGenerator, and initialise the player and NPCs. The
+     * events of the story only happen in the rooms of the tower
+     * that share their names. Saves of the game can only be
+     * restored into games on the same map, and its journal can't
+     * be replayed.
+     * @param input The source of the player's input.
+     * @param out   The output the game's text is printed to.
+     * @param clock The clock that controls how long the game pauses for.
+     * @param seed  The seed of the game's random events.
+     * @param map   The map the game is played on.
+     */
+    public Game(Reader input, GameOutput out, GameClock clock, long seed, WorldTemplate map) {
+        this.clock = clock;
+        this.out = out;
+        randomSeed = seed;
+        journal = new Journal(seed);
+        this.map = map;
+        world = new RoomRegistry(map);
+        player = new Player(10, Spells.getAllSpells(), world, HISTORY_DEPTH);
+        commandWords = new CommandWords();
+        parser = new Parser(input, out, commandWords, journal);
+        setupCommands();
+        player.goToRoom(world.get(map.getStartRoom()));
+        setupNpcs();
+        bossIdentified = false;
     }
 
     /**
-     * Create and add the items to the map.
+     * Register the command words, along with the handler
+     * that executes each one and the help shown for it.
      */
-    private void setupItems() {
-        rooms.get(6).addItem(new Item("iron_sword", 3, true, false));
-        rooms.get(8).addItem(new Item("oil_can", 2, true, true));
-        rooms.get(1).addItem(new Item("gold_coin", 0, true, false));
-        rooms.get(2).addItem(new Item("gold_coin", 0, true, false));
-        rooms.get(0).addItem(new Item("gold_coin", 0, true, false));
-        rooms.get(5).addItem(new Item("gold_coin", 0, true, false));
-        rooms.get(9).addItem(new Item("gold_coin", 0, true, false));
-        rooms.get(10).addItem(new Item("gold_coin", 0, true, false));
-        rooms.get(9).addItem(new Item("platinum_piece", 2, true, false));
-        rooms.get(4).addItem(new Item("platinum_piece", 2, true, false));
-        rooms.get(7).addItem(new Item("platinum_piece", 2, true, false));
+    private void setupCommands() {
+        commandWords.register("go", this::goRoom,
+                () -> out.println("Go to another room \nformat: go <north/south/east/west>"));
+        commandWords.register("goto", this::goTo,
+                () -> out.println("Walk the shortest way to a room\nformat: goto [room name]"));
+        commandWords.register("quit", this::quit,
+                () -> out.println("Quit the game\nformat: quit"));
+        commandWords.register("help", command -> {
+            help(command);
+            return false;
+        }, () -> {
+            out.println("List available commands\nformat: help");
+            out.println("Or give information about a command\nformat: help [command word]");
+        });
+        commandWords.register("investigate", command -> {
+            investigate(command);
+            return false;
+        }, () -> out.println("List the items and objects in the current room\nformat: investigate"));
+        commandWords.register("cast", this::cast, () -> {
+            out.println("Available spells:");
+            player.printAvailableSpells(out);
+            out.println("Cast a spell in your spellbook\nformat: cast [spell name]");
+            out.println("Cast a spell in your spellbook on a target (if applicable)\nformat: cast [spell name] [target name]");
+        });
+        commandWords.register("take", command -> {
+            take(command);
+            return false;
+        }, () -> out.println("Take an item from the current room and put it in your inventory\nformat: take [item name]"));
+        commandWords.register("use", command -> {
+            use(command);
+            return false;
+        }, () -> {
+            out.println("Use an item in your inventory or in the current room\nformat: use [item name]");
+            out.println("Use an item on an object in the current room\nformat: use [item name] [object name]");
+        });
+        commandWords.register("inventory", command -> {
+            inventory(command);
+            return false;
+        }, () -> out.println("List your coin balance, the size of your inventory, the items in it and their weights\nformat: inventory"));
+        commandWords.register("back", command -> {
+            goBack(command);
+            return false;
+        }, () -> out.println("Go to the previous room you were in. If used again, go back further\nformat: back"));
+        commandWords.register("drop", command -> {
+            drop(command);
+            return false;
+        }, () -> out.println("Remove an item from your inventory and place it in the room\nformat: drop [item name]"));
+    }
 
-        rooms.get(0).addItem(new Item("lever_1", 0, false, true));
-        rooms.get(0).addItem(new Item("lever_2", 0, false, true));
-        rooms.get(0).addItem(new Item("lever_3", 0, false, false));
-        rooms.get(4).addItem(new Item("forge", 0, false, true));
-        rooms.get(5).addItem(new Item("magic_book", 0, false, true));
-        rooms.get(5).addItem(new Item("riddle_book", 0, false, true));
-        rooms.get(13).addItem(new Item("glowing_pillar", 0, false, true));
+    /**
+     * Load the template of the map shared by every game: all the rooms,
+     * how their exits link together, their items and the NPCs.
+     * @return The template of the map.
+     */
+    private static WorldTemplate loadTower() {
+        try {
+            return WorldTemplate.load("tower");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
@@ -174,44 +196,106 @@ public class Game {
         playStart();
         wait(2000);
         finished = initialCutscene();
-        // Enter the main command loop.  Here we repeatedly read commands and
-        // execute them until the game is over.
+        if (!finished) {
+            playCommands();
+        }
+        if (!suspended) {
+            end();
+        }
+    }
 
+    /**
+     * Continue playing a game that has been restored from a save,
+     * starting by describing the room the player is in.
+     */
+    public void resume() {
+        out.println(player.getCurrentRoom().getDescription());
+        playCommands();
+        if (!suspended) {
+            end();
+        }
+    }
+
+    /**
+     * Continue playing a game that was suspended while waiting for a
+     * command, after it has been restored from a save. The player
+     * has already been prompted for the command.
+     */
+    public void continuePlaying() {
+        parser.skipPrompt();
+        playCommands();
+        if (!suspended) {
+            end();
+        }
+    }
+
+    /**
+     * Enter the main command loop.  Here we repeatedly read commands and
+     * execute them until the game is over.
+     */
+    private void playCommands() {
+        boolean finished = false;
+        long lastCommandTime = System.nanoTime();
         while (!finished) {
-            Command command = parser.getCommand();
+            Command command = parser.getCommandUnlessIdle();
+            if (command == null) {
+                if (!parser.hasTimedOut()) {
+                    break;      // there is no more input
+                }
+                if (idleHandler != null && idleHandler.shouldSuspend(System.nanoTime() - lastCommandTime)) {
+                    suspended = true;
+                    break;
+                }
+                continue;
+            }
+            lastCommandTime = System.nanoTime();
             finished = processCommand(command);
             npcs.moveNpcs();
+            if (journal.commandPlayed()) {
+                journal.compact(save());
+            }
+            if (idleHandler != null) {
+                idleHandler.commandPlayed();
+            }
         }
-        System.out.println("Thank you for playing.  Good bye.");
-        wait(10000);
+    }
+
+    /**
+     * Say goodbye to the player, pausing so it can be read
+     * unless the player has already gone.
+     */
+    private void end() {
+        out.println("Thank you for playing.  Good bye.");
+        if (!parser.hasInputEnded()) {
+            wait(10000);    // nobody is left to read the goodbye if the player disconnected
+        }
+        out.flush();
     }
 
     /**
      * Take the user's name before showing the startup graphic.
      */
     private void playStart() {
-        System.out.println("");
-        System.out.println("What is your name?");
-        System.out.print("> ");
-        player.setName(scanner.nextLine().trim());
-        System.out.println("Hello " + player.getName() + ", welcome to...");
+        out.println("");
+        out.println("What is your name?");
+        out.print("> ");
+        player.setName(parser.readLine());
+        out.println("Hello " + player.getName() + ", welcome to...");
         wait(2000);
         printFile("logo.txt");
     }
 
     /**
-     * Print the contents of a text file.
+     * Print the contents of a text file, which is only
+     * read the first time it's printed by any game.
      * @param filename The name of the text file.
      */
     private void printFile(String filename) {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Game.class.getResourceAsStream(filename), "UTF-8"))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                System.out.println(line);
-            }
-        } catch (NullPointerException ignored) {
+        byte[] contents = Assets.get(filename);
+        if (contents == null) {
             System.err.println(filename + " not found");
-        } catch (java.io.IOException ignored) {
+        } else {
+            out.write(contents);
         }
     }
 
@@ -227,121 +311,123 @@ public class Game {
 
         switch (currentRoom.getName()) {
             case "shop":
-                System.out.println(currentRoom.getDescription());
+                out.println(currentRoom.getDescription());
                 if (!entered) {
-                    System.out.println("You see a dazed looking large man with a smile on his face");
-                    System.out.println("\"Hello there! Welcome to my shop, see anything you want?\"");
-                    System.out.println("You notice a broken jar in front of the man, a blue liquid surrounding it, it's fumes surrounding him");
+                    out.println("You see a dazed looking large man with a smile on his face");
+                    out.println("\"Hello there! Welcome to my shop, see anything you want?\"");
+                    out.println("You notice a broken jar in front of the man, a blue liquid surrounding it, it's fumes surrounding him");
                 } else {
-                    System.out.println("\"Welcome back! What can I get for you?\" He says, the dazed expression still on his face");
+                    out.println("\"Welcome back! What can I get for you?\" He says, the dazed expression still on his face");
                 }
                 break;
             case "trollsRoom":
-                NPC troll = npcs.npcInRoom(currentRoom);
-                if (troll.getAsleep()) {
-                    System.out.println("\nYou hear snoring from a dark corner of the hallway");
-                    System.out.println(currentRoom.getDescription());
+                NPC troll = npcs.getNpc("rumpelstiltskin");
+                if (troll == null) {
+                    out.println(currentRoom.getDescription());
+                } else if (troll.getAsleep()) {
+                    out.println("\nYou hear snoring from a dark corner of the hallway");
+                    out.println(currentRoom.getDescription());
                 } else {
-                    System.out.println("A troll covered in armor stands in front of you, not letting you pass");
+                    out.println("A troll covered in armor stands in front of you, not letting you pass");
                     if (!entered) {
-                        System.out.println("\"Welcome " + player.getName() + ". I'm sure you've met my boss\"");
-                        System.out.println("\"He's given me the job of keeping you out. But let's make this a game\"");
-                        System.out.println("\"I'll give you a riddle. Answer it correctly and you can pass\"");
-                        System.out.println("\"But if you get it wrong, back to the elevator with you!\"");
+                        out.println("\"Welcome " + player.getName() + ". I'm sure you've met my boss\"");
+                        out.println("\"He's given me the job of keeping you out. But let's make this a game\"");
+                        out.println("\"I'll give you a riddle. Answer it correctly and you can pass\"");
+                        out.println("\"But if you get it wrong, back to the elevator with you!\"");
                     } else {
-                        System.out.println("\"You think you've figured it out? Here's the riddle in case you forget it\"");
+                        out.println("\"You think you've figured it out? Here's the riddle in case you forget it\"");
                     }
                     wait(5000);
-                    System.out.println("\"Throw me out of a the window and you see a grieving wife.\nBring me back, but through the door and you see someone giving life.\nWhat am I?\"");
-                    String response = scanner.nextLine().trim().toLowerCase();
+                    out.println("\"Throw me out of a the window and you see a grieving wife.\nBring me back, but through the door and you see someone giving life.\nWhat am I?\"");
+                    String response = parser.readLine().toLowerCase();
                     if (response.equals("n")) {
-                        System.out.println("Wow, how did you figure that out? I guess a deal's a deal\nI'm going to sleep, don't tell the boss");
-                        npcs.npcInRoom(currentRoom).sleep();
-                        System.out.println(currentRoom.getDescription());
+                        out.println("Wow, how did you figure that out? I guess a deal's a deal\nI'm going to sleep, don't tell the boss");
+                        troll.sleep();
+                        out.println(currentRoom.getDescription());
                     } else {
 
                         if (response.equals("rumpelstiltskin")) {
-                            System.out.println("Nice try, but wrong story");
+                            out.println("Nice try, but wrong story");
                         }
-                        System.out.println("Unfortunately you got it wrong. You know what that means");
-                        System.out.println("With a surprisingly powerful punch, he knocks you out of the room");
-                        player.goToRoom(rooms.get(0));
+                        out.println("Unfortunately you got it wrong. You know what that means");
+                        out.println("With a surprisingly powerful punch, he knocks you out of the room");
+                        player.goToRoom(world.get("elevator"));
                         enterCurrentRoomSequence();
                     }
                 }
                 break;
             case "bossRoom":
                 if (!entered) {
-                    System.out.println("\"So you finally made it, I was beginning to get worried\"");
+                    out.println("\"So you finally made it, I was beginning to get worried\"");
                     if (bossIdentified) {
-                        System.out.println("You found out my name too. You should've killed me when you had the chance!");
+                        out.println("You found out my name too. You should've killed me when you had the chance!");
                     }
                 } else {
-                    System.out.println("\"When will you learn that resistance is futile?\"");
+                    out.println("\"When will you learn that resistance is futile?\"");
                 }
-                System.out.println("I won't let you escape!");
+                out.println("I won't let you escape!");
                 wait(2000);
                 if (!player.inventoryHas("platinum_sword")) {
-                    System.out.println("He casts a ball of energy at you, knocking you to your feet");
-                    System.out.println("\"I have to keep you alive\"");
-                    System.out.println("He raises his hand as a glow purple surround both you and it. You float in the air, unable to get down");
-                    System.out.println("With a flick of his wrist, you are flung out of the room");
+                    out.println("He casts a ball of energy at you, knocking you to your feet");
+                    out.println("\"I have to keep you alive\"");
+                    out.println("He raises his hand as a glow purple surround both you and it. You float in the air, unable to get down");
+                    out.println("With a flick of his wrist, you are flung out of the room");
                     wait(5000);
-                    player.goToRoom(rooms.get(11));
+                    player.goToRoom(world.get("theatre"));
                 } else {
-                    System.out.println("He casts a ball of energy at you, it disperses around you");
-                    System.out.println("\"Impossible!\" He shouts as he raises his hand as it flickers a purple glow around itself");
+                    out.println("He casts a ball of energy at you, it disperses around you");
+                    out.println("\"Impossible!\" He shouts as he raises his hand as it flickers a purple glow around itself");
                     wait(2000);
-                    System.out.println("You approach him, wielding the platinum sword. \"No! Platinum!?\" He shouts as you strike him with the sword");
-                    System.out.println("He erupts into a cloud of smoke, his face glowing in it as it fills the room");
-                    System.out.println("\"This is not the end\" He laughs as the door swings open and the smoke flies out");
+                    out.println("You approach him, wielding the platinum sword. \"No! Platinum!?\" He shouts as you strike him with the sword");
+                    out.println("He erupts into a cloud of smoke, his face glowing in it as it fills the room");
+                    out.println("\"This is not the end\" He laughs as the door swings open and the smoke flies out");
                     wait(2000);
-                    System.out.println("You leave through the door and watch as the cloud of smoke drifts up into the blue sky");
-                    System.out.println("You walk away from the Clockwork Tower after your successful escape");
+                    out.println("You leave through the door and watch as the cloud of smoke drifts up into the blue sky");
+                    out.println("You walk away from the Clockwork Tower after your successful escape");
                     wait(5000);
                     printFile("tower.txt");
-                    System.out.println("You won the game!");
-                    System.out.println("Now try to find the secret ending...");
+                    out.println("You won the game!");
+                    out.println("Now try to find the secret ending...");
                     npcs.removeNpc(npcs.getNpc("glinlok"));
                     wantToQuit = true;
                 }
                 break;
             case "elevator":
-                try {
-                    ((Elevator) rooms.get(0)).enterFromRoom(player.getPreviousRoom());
-                } catch (java.util.EmptyStackException ignored) {
+                if (player.getPreviousRoom() != null) {
+                    ((Elevator) world.get("elevator")).enterFromRoom(player.getPreviousRoom());
                 }
-                System.out.println(currentRoom.getDescription());
+                out.println(currentRoom.getDescription());
                 break;
             case "theatre":
-                if (npcs.npcInRoom(currentRoom) == null) {
-                    System.out.println(currentRoom.getDescription());
+                NPC zombie = npcs.getNpc("dave");
+                if (zombie == null) {
+                    out.println(currentRoom.getDescription());
                 } else {
-                    System.out.println("As you enter the room zombie lunges at you!");
+                    out.println("As you enter the room zombie lunges at you!");
                     wait(1000);
                     if (!(player.inventoryHas("platinum_sword") || player.inventoryHas("iron_sword"))) {
-                        System.out.println("With no weapon, you decide it's best to escape");
-                        player.goToRoom(rooms.get(10));
+                        out.println("With no weapon, you decide it's best to escape");
+                        player.goToRoom(world.get("trollsRoom"));
                     } else {
-                        System.out.println("You attack it with your sword, causing it to collapse");
-                        npcs.removeNpc(npcs.npcInRoom(currentRoom));
-                        System.out.println(currentRoom.getDescription());
+                        out.println("You attack it with your sword, causing it to collapse");
+                        npcs.removeNpc(zombie);
+                        out.println(currentRoom.getDescription());
                         break;
                     }
                 }
             case "soldiersQuarters":
                 if (!entered) {
-                    System.out.println("You see a soldier sitting on his bed in a neutral position, with a blank expression on his face");
-                    System.out.println("\"Help me\" He says in a monotone voice, staring into the distance");
-                    System.out.println("\"He cast a spell on me, he took over the tower. Kill him to free me\"");
-                    System.out.println("\"He has a single weakness, you must exploit it. You must forge the platinum sword\"");
+                    out.println("You see a soldier sitting on his bed in a neutral position, with a blank expression on his face");
+                    out.println("\"Help me\" He says in a monotone voice, staring into the distance");
+                    out.println("\"He cast a spell on me, he took over the tower. Kill him to free me\"");
+                    out.println("\"He has a single weakness, you must exploit it. You must forge the platinum sword\"");
                 } else {
-                    System.out.println("\"Forge the platinum sword. Exploit his only weakness\" The soldier says in a monotone voice");
+                    out.println("\"Forge the platinum sword. Exploit his only weakness\" The soldier says in a monotone voice");
                 }
-                System.out.println(currentRoom.getDescription());
+                out.println(currentRoom.getDescription());
                 break;
             default:
-                System.out.println(currentRoom.getDescription());
+                out.println(currentRoom.getDescription());
                 break;
         }
         if (!wantToQuit) currentRoom.enter();
@@ -357,11 +443,14 @@ public class Game {
      */
     private boolean initialCutscene() {
         boolean wantToQuit = false;
-        System.out.println("");
-        System.out.println("You wake up on the floor of a dark room. Lying at the feet of a shadowy figure.");
-        System.out.println("\"You're finally awake\" He says.");
+        out.println("");
+        out.println("You wake up on the floor of a dark room. Lying at the feet of a shadowy figure.");
+        out.println("\"You're finally awake\" He says.");
 
         Command command = parser.getCommand();
+        if (command == null) {
+            return true;    // there is no more input
+        }
         if (!command.isUnknown()) {
             if (command.getCommandWord().equals("cast") && command.hasSecondWord()) {
                 cast(command);
@@ -369,9 +458,12 @@ public class Game {
         }
 
         if (bossIdentified) {
-            System.out.println("\"What are you doing? Stop that!\" Glinlok says");
+            out.println("\"What are you doing? Stop that!\" Glinlok says");
 
             command = parser.getCommand();
+            if (command == null) {
+                return true;    // there is no more input
+            }
             if (!command.isUnknown()) {
                 if (command.getCommandWord().equals("cast") && command.hasSecondWord()) {
                     wantToQuit = cast(command);
@@ -380,22 +472,22 @@ public class Game {
         }
 
         if (!wantToQuit) {
-            System.out.println("\"I'm sorry, is my monologue not worthy of your attention?\"");
-            System.out.println("\"I'll get to the point. As you can see I've captured you.\"");
-            System.out.println("\"Meet me at the bottom floor if you want to escape.\"");
-            System.out.println("He holds out his hand and your spellbook flies into it");
-            System.out.println("\"Lets get rid of some of the more powerful spells. Can't have you cheating.\" He flicks through your spellbook");
+            out.println("\"I'm sorry, is my monologue not worthy of your attention?\"");
+            out.println("\"I'll get to the point. As you can see I've captured you.\"");
+            out.println("\"Meet me at the bottom floor if you want to escape.\"");
+            out.println("He holds out his hand and your spellbook flies into it");
+            out.println("\"Lets get rid of some of the more powerful spells. Can't have you cheating.\" He flicks through your spellbook");
             wait(10000);
             removePowerfulSpells();
-            System.out.println("Your spellbook drops to the floor as he disappears, filling the room with darkness");
+            out.println("Your spellbook drops to the floor as he disappears, filling the room with darkness");
             npcs.moveNpcs();
             wait(5000);
-            System.out.println("");
-            System.out.println("---THE CLOCKWORK TOWER---");
-            System.out.println("");
-            System.out.println("Hint: Use investigate in every room to make sure you don't miss anything out\nAnd use the illuminate spell to light up a dark room");
-            System.out.println("Type 'help' if you need help");
-            System.out.println(player.getCurrentRoom().getDescription());
+            out.println("");
+            out.println("---THE CLOCKWORK TOWER---");
+            out.println("");
+            out.println("Hint: Use investigate in every room to make sure you don't miss anything out\nAnd use the illuminate spell to light up a dark room");
+            out.println("Type 'help' if you need help");
+            out.println(player.getCurrentRoom().getDescription());
         }
 
         return wantToQuit;
@@ -406,15 +498,15 @@ public class Game {
      * start of the game from the spellbook and print remaining spells
      */
     private void removePowerfulSpells() {
-        System.out.println("");
-        player.removeSpell("eliminate");
-        player.removeSpell("rejuvenate");
-        player.removeSpell("mesmerize");
-        player.removeSpell("descend");
-        System.out.println("eliminate, rejuvenate, mesmerize, and descend have been removed from your spellbook");
-        System.out.println("Remaining spells:");
-        player.printAvailableSpells();
-        System.out.println("");
+        out.println("");
+        player.removeSpell(ELIMINATE);
+        player.removeSpell(REJUVENATE);
+        player.removeSpell(MESMERIZE);
+        player.removeSpell(DESCEND);
+        out.println("eliminate, rejuvenate, mesmerize, and descend have been removed from your spellbook");
+        out.println("Remaining spells:");
+        player.printAvailableSpells(out);
+        out.println("");
     }
 
     /**
@@ -422,36 +514,7 @@ public class Game {
      * traverse throughout the game
      */
     private void setupNpcs() {
-        HashSet<NPC> npcsSet = new HashSet<>();
-        NPC glinlok, bongo, rumpelstiltskin, zombie;
-
-        Stack<Room> glinlokRoute = new Stack<>();
-        Stack<Room> bongoRoute = new Stack<>();
-        Stack<Room> rumpelstiltskinRoute = new Stack<>();
-        Stack<Room> zombieRoute = new Stack<>();
-
-        glinlokRoute.push(rooms.get(12));
-        glinlokRoute.push(rooms.get(11));
-        glinlokRoute.push(rooms.get(10));
-        glinlokRoute.push(rooms.get(0));
-        glinlokRoute.push(rooms.get(4));
-        glinlokRoute.push(rooms.get(2));
-        glinlokRoute.push(rooms.get(1));
-        bongoRoute.push(rooms.get(3));
-        rumpelstiltskinRoute.push(rooms.get(10));
-        zombieRoute.push(rooms.get(11));
-
-        glinlok = new NPC("glinlok", glinlokRoute);
-        bongo = new NPC("bongo", bongoRoute);
-        rumpelstiltskin = new NPC("rumpelstiltskin", rumpelstiltskinRoute);
-        zombie = new NPC("dave", zombieRoute);
-
-        npcsSet.add(glinlok);
-        npcsSet.add(bongo);
-        npcsSet.add(rumpelstiltskin);
-        npcsSet.add(zombie);
-
-        npcs = new NPCs(npcsSet);
+        npcs = map.createNpcs(world);
     }
 
     /**
@@ -461,62 +524,22 @@ public class Game {
      * @return true If the command ends the game, false otherwise.
      */
     private boolean processCommand(Command command) {
-        boolean wantToQuit = false;
-
         if (command.isUnknown()) {
-            System.out.println("I don't know what you mean...");
+            out.println("I don't know what you mean...");
             return false;
         }
 
-        String commandWord = command.getCommandWord();
-        switch (commandWord) {
-
-            case "help":
-                help(command);
-                break;
-            case "go":
-                wantToQuit = goRoom(command);
-                break;
-            case "quit":
-                wantToQuit = quit(command);
-                break;
-            case "cast":
-                wantToQuit = cast(command);
-                break;
-            case "investigate":
-                investigate(command);
-                break;
-            case "take":
-                take(command);
-                break;
-            case "use":
-                use(command);
-                break;
-            case "inventory":
-                if (!command.hasThirdWord()) {
-                    System.out.println("Total inventory capacity: " + player.getInventorySize());
-                    System.out.println("Coin balance:" + player.getBalance());
-                    player.showInventory();
-                } else {
-                    System.out.println("inventory what?");
-                }
-                break;
-            case "back":
-                goBack(command);
-                break;
-            case "drop":
-                drop(command);
-        }
-
-        return wantToQuit;
+        return command.getHandler().execute(command);
     }
 
     /**
-     * Teleport the player to a random room (excluding the teleporter room).
+     * Teleport the player to a random room (excluding the teleporter
+     * room, which has been deleted).
      */
     private void randomTeleport() {
-        Random rand = new Random();
-        player.goToRoom(rooms.get(rand.nextInt(rooms.size() - 1)));
+        Random rand = new Random(randomSeed);
+        player.goToRoom(world.getRandomRoom(rand));
+        randomSeed = rand.nextLong();
         enterCurrentRoomSequence();
     }
 
@@ -526,12 +549,12 @@ public class Game {
      * @param leverNumber The number of the lever that was used.
      */
     private void useLever(int leverNumber) {
-        if(((Elevator) rooms.get(0)).move(leverNumber)) {
-            System.out.println("You hear the sound of clockwork around you as the ground shakes");
-            System.out.println("The lever snaps back up as the sound stops");
+        if(((Elevator) world.get("elevator")).move(leverNumber)) {
+            out.println("You hear the sound of clockwork around you as the ground shakes");
+            out.println("The lever snaps back up as the sound stops");
             player.clearPreviousRooms();
         } else {
-            System.out.println("The lever snaps back up");
+            out.println("The lever snaps back up");
         }
     }
     // implementations of user commands:
@@ -547,23 +570,36 @@ public class Game {
         Room currentRoom = player.getCurrentRoom();
 
         if (!command.hasSecondWord()) {
-            System.out.println("Drop what?");
+            out.println("Drop what?");
         } else if (currentRoom.getDark()) {
-            System.out.println("The room is too dark, you might lose it");
+            out.println("The room is too dark, you might lose it");
         } else {
             String secondWord = command.getSecondWord();
-            Item item = player.getItem(secondWord);
-            String itemName = item.getName();
-            if (player.hasItem(secondWord) && !(itemName.equals("compass") || itemName.equals("spellbook"))) {
+            Item item = player.getItem(command.getSecondSymbol());
+            if (item != null && !(secondWord.equals("compass") || secondWord.equals("spellbook"))) {
                 currentRoom.addItem(item);
-                player.removeItem(secondWord);
-                System.out.println("You dropped " + secondWord);
+                player.removeItem(command.getSecondSymbol());
+                out.println("You dropped " + secondWord);
             } else {
-                System.out.println("Your inventory does not contain " + secondWord);
+                out.println("Your inventory does not contain " + secondWord);
             }
         }
     }
 
+    /**
+     * List the size of the player's inventory, their coin balance,
+     * and the items in their inventory.
+     */
+    private void inventory(Command command) {
+        if (!command.hasThirdWord()) {
+            out.println("Total inventory capacity: " + player.getInventorySize());
+            out.println("Coin balance:" + player.getBalance());
+            player.showInventory(out);
+        } else {
+            out.println("inventory what?");
+        }
+    }
+
     /**
      * Go to the room the player was in before the current one.
      * If used again, travel backwards along the path
@@ -571,14 +607,14 @@ public class Game {
      */
     private void goBack(Command command) {
         if(command.hasSecondWord()) {
-            System.out.println("Back what?");
+            out.println("Back what?");
             return;
         }
 
         if (player.goBack()) {
             enterCurrentRoomSequence();
         } else {
-            System.out.println("You cannot go back");
+            out.println("You cannot go back");
         }
     }
 
@@ -592,93 +628,143 @@ public class Game {
      * @return Whether or not casting the spell causes the game to end.
      */
     private boolean cast(Command command) {
-        Room currentRoom = player.getCurrentRoom();
-
         if (!command.hasSecondWord()) {
             // if there is no second word, we don't know what to cast...
-            System.out.println("Cast what?");
-            System.out.println("Available spells:");
-            player.printAvailableSpells();
+            out.println("Cast what?");
+            out.println("Available spells:");
+            player.printAvailableSpells(out);
             return false;
         }
 
-        String spellName = command.getSecondWord();
+        Spell spell = Spells.getSpellBySymbol(command.getSecondSymbol());
 
-        if (!player.hasSpell(spellName)) {
-            System.out.println("You don't have that spell!");
+        if (spell == null || !player.hasSpell(spell)) {
+            out.println("You don't have that spell!");
             return false;
         }
 
-        if (Spells.getSpell(spellName).getSingleUse()) {
-            player.removeSpell(spellName);
+        if (spell.getSingleUse()) {
+            player.removeSpell(spell);
         }
 
-        switch (spellName) {
-            case "illuminate":
-                if (currentRoom.getDark()) {
-                    currentRoom.makeBright();
-                    System.out.println("The room fills with light");
-                    System.out.println(currentRoom.getDescription());
-                } else {
-                    System.out.println("The room is not dark");
-                }
-                break;
-            case "identify":
-                if (npcs.isNpcInRoom(currentRoom)) {
-                    String npcName = npcs.npcInRoom(currentRoom).getName();
-                    System.out.println("A name comes into your mind: " + npcName);
-                    if (npcName.equals("glinlok")) {
-                        bossIdentified = true;
-                    }
-                } else {
-                    System.out.println("There is nobody else in the room...");
-                }
-                break;
-            case "eliminate":
-                if (command.hasThirdWord()) {
-                    String targetName = command.getThirdWord();
-                    NPC npc = npcs.npcInRoom(currentRoom);
-                    String npcName = npc.getName();
-
-                    if (npcName.equals(targetName) && npcName.equals("glinlok") && bossIdentified) {
-                        System.out.println("\"No! I cannot be defeated!\" Glinlok says as he casts a ball of energy, narrowly missing you and destroying the wall behind you");
-                        System.out.println("With the power of your spell Glinlok erupts in a powerful ball of light");
-                        npcs.removeNpc(npc);
-                        System.out.println("You jump out of the hole in the wall and cast descend, teleporting you to the ground");
-                        System.out.println("You walk away from the Clockwork Tower after your successful escape");
-                        printFile("tower.txt");
-                        System.out.println("You won the game! Great job on finding this secret ending!");
-                        return true;
-                    }
+        return spell.cast(this, command);
+    }
 
-                    if (npcName.equals(targetName) && !npcName.equals("glinlok")) {
-                        System.out.println("Before they could react " + npcName + " erupts in a powerful ball of light");
-                        npcs.removeNpc(npc);
-                    }
+    /**
+     * Light up the current room if it's dark.
+     *
+     * @param command The cast command.
+     * @return false, as the spell never ends the game.
+     */
+    private boolean illuminate(Command command) {
+        Room currentRoom = player.getCurrentRoom();
+        if (currentRoom.getDark()) {
+            currentRoom.makeBright();
+            out.println("The room fills with light");
+            out.println(currentRoom.getDescription());
+        } else {
+            out.println("The room is not dark");
+        }
+        return false;
+    }
 
-                } else {
-                    System.out.println("Eliminate who?");
-                }
-                break;
-            case "rejuvenate":
-                if (!command.hasThirdWord()) {
-                    System.out.println("Rejuvenate who?");
-                } else { //This spell is not being used in the game, so this is just a general structure
-                    System.out.println("It didn't work. Your magic is being suppressed...");
-                }
-                break;
-            case "mesmerize":
-                if (!command.hasThirdWord()) {
-                    System.out.println("Mesmerize who?");
-                } else { //This spell is not being used in the game, so this is just a general structure
-                    System.out.println("It didn't work. Your magic is being suppressed...");
-                }
-                break;
-            case "descend":
-                System.out.println("It didn't work. Your magic is being suppressed...");
-                break;
+    /**
+     * Tell the player the name of the NPC in the current room.
+     *
+     * @param command The cast command.
+     * @return false, as the spell never ends the game.
+     */
+    private boolean identify(Command command) {
+        Room currentRoom = player.getCurrentRoom();
+        if (npcs.isNpcInRoom(currentRoom)) {
+            String npcName = npcs.npcInRoom(currentRoom).getName();
+            out.println("A name comes into your mind: " + npcName);
+            if (npcName.equals("glinlok")) {
+                bossIdentified = true;
+            }
+        } else {
+            out.println("There is nobody else in the room...");
+        }
+        return false;
+    }
+
+    /**
+     * Remove the NPC named by the player from the current room. The boss
+     * can only be eliminated once identified, which ends the game.
+     *
+     * @param command The cast command, with the NPC's name as its third word.
+     * @return Whether or not the spell ends the game.
+     */
+    private boolean eliminate(Command command) {
+        Room currentRoom = player.getCurrentRoom();
+        if (!command.hasThirdWord()) {
+            out.println("Eliminate who?");
+        } else if (!npcs.isNpcInRoom(currentRoom)) {
+            out.println("There is nobody else in the room...");
+        } else {
+            NPC npc = npcs.getNpc(command.getThirdWord());
+            if (npc == null || npc.getCurrentRoom() != currentRoom) {
+                return false;
+            }
+            String npcName = npc.getName();
+
+            if (npcName.equals("glinlok") && bossIdentified) {
+                out.println("\"No! I cannot be defeated!\" Glinlok says as he casts a ball of energy, narrowly missing you and destroying the wall behind you");
+                out.println("With the power of your spell Glinlok erupts in a powerful ball of light");
+                npcs.removeNpc(npc);
+                out.println("You jump out of the hole in the wall and cast descend, teleporting you to the ground");
+                out.println("You walk away from the Clockwork Tower after your successful escape");
+                printFile("tower.txt");
+                out.println("You won the game! Great job on finding this secret ending!");
+                return true;
+            }
+
+            if (!npcName.equals("glinlok")) {
+                out.println("Before they could react " + npcName + " erupts in a powerful ball of light");
+                npcs.removeNpc(npc);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Heal the NPC named by the player.
+     *
+     * @param command The cast command, with the NPC's name as its third word.
+     * @return false, as the spell never ends the game.
+     */
+    private boolean rejuvenate(Command command) {
+        if (!command.hasThirdWord()) {
+            out.println("Rejuvenate who?");
+        } else { //This spell is not being used in the game, so this is just a general structure
+            out.println("It didn't work. Your magic is being suppressed...");
+        }
+        return false;
+    }
+
+    /**
+     * Put the NPC named by the player in a trance.
+     *
+     * @param command The cast command, with the NPC's name as its third word.
+     * @return false, as the spell never ends the game.
+     */
+    private boolean mesmerize(Command command) {
+        if (!command.hasThirdWord()) {
+            out.println("Mesmerize who?");
+        } else { //This spell is not being used in the game, so this is just a general structure
+            out.println("It didn't work. Your magic is being suppressed...");
         }
+        return false;
+    }
 
+    /**
+     * Teleport the player to the ground below.
+     *
+     * @param command The cast command.
+     * @return false, as the spell never ends the game.
+     */
+    private boolean descend(Command command) {
+        out.println("It didn't work. Your magic is being suppressed...");
         return false;
     }
 
@@ -692,32 +778,33 @@ public class Game {
         Room currentRoom = player.getCurrentRoom();
 
         if (!command.hasSecondWord()) {
-            System.out.println("Take what?");
+            out.println("Take what?");
         } else if (currentRoom.getDark()) {
-            System.out.println("The room is too dark");
+            out.println("The room is too dark");
         } else {
             String secondWord = command.getSecondWord();
+            int itemSymbol = command.getSecondSymbol();
 
-            if (currentRoom.containsItem(secondWord)) {
-                Item item = currentRoom.getItem(secondWord);
+            if (currentRoom.containsItem(itemSymbol)) {
+                Item item = currentRoom.getItem(itemSymbol);
 
                 if (item.getName().equals("gold_coin")) {
                     player.incrementBalance();
-                    currentRoom.removeItem(item);
-                    System.out.println("You put the gold coin in your coin pouch");
+                    currentRoom.removeItem(itemSymbol);
+                    out.println("You put the gold coin in your coin pouch");
                     return;
                 }
 
                 boolean successful = player.addItem(item);
                 if (successful) {
-                    currentRoom.removeItem(item);
-                    System.out.println("You place " + secondWord + " into your inventory");
+                    currentRoom.removeItem(itemSymbol);
+                    out.println("You place " + secondWord + " into your inventory");
                 } else {
-                    System.out.println("You couldn't pick it up\n(hint: check the item weights in your inventory)");
+                    out.println("You couldn't pick it up\n(hint: check the item weights in your inventory)");
                 }
 
             } else {
-                System.out.println("This room doesn't contain an item called " + secondWord);
+                out.println("This room doesn't contain an item called " + secondWord);
             }
 
         }
@@ -734,12 +821,13 @@ public class Game {
     private void use(Command command) {
         Room currentRoom = player.getCurrentRoom();
         if (!command.hasSecondWord()) {
-            System.out.println("Use what?");
+            out.println("Use what?");
         } else if (currentRoom.getDark()) {
-            System.out.println("The room is too dark");
+            out.println("The room is too dark");
         } else {
             String secondWord = command.getSecondWord();
-            if (currentRoom.containsItem(secondWord)) {
+            int itemSymbol = command.getSecondSymbol();
+            if (currentRoom.containsItem(itemSymbol)) {
 
                 switch (secondWord) {
                     case "lever_1":
@@ -752,58 +840,56 @@ public class Game {
                         if (currentRoom.getItem("lever_3").getUsable()) {
                             useLever(3);
                         } else {
-                            System.out.println("You try to pull the lever down, but it's too rusty. Maybe some oil could help");
+                            out.println("You try to pull the lever down, but it's too rusty. Maybe some oil could help");
                         }
                         break;
                     case "forge":
-                        System.out.println("A laser mounted on the ceiling analyses you before turning off");
+                        out.println("A laser mounted on the ceiling analyses you before turning off");
                         if (player.itemCount("platinum_piece") == 3 && player.inventoryHas("iron_sword")) {
                             player.removeItem("iron_sword");
-                            for (int i = 0; i < 3; i++) {
-                                player.removeItem("platinum_piece");
-                            }
-                            System.out.println("The robotic arms of the forge spring to life, grabbing 3 platinum pieces and the iron sword from your inventory");
-                            System.out.println("You watch as the arms manipulate the metal with the heat of the forge and various tools");
-                            System.out.println("Finally, the arms present the platinum sword for you to take");
+                            player.removeItems("platinum_piece", 3);
+                            out.println("The robotic arms of the forge spring to life, grabbing 3 platinum pieces and the iron sword from your inventory");
+                            out.println("You watch as the arms manipulate the metal with the heat of the forge and various tools");
+                            out.println("Finally, the arms present the platinum sword for you to take");
                             wait(2000);
-                            rooms.get(4).addItem(new Item("platinum_sword", 6, true, true));
+                            world.get("workshop").addItem(new Item("platinum_sword", 6, true, true));
                         } else {
-                            System.out.println("\"NOT ENOUGH MATERIAL\" You hear a robotic voice saying, the sound coming from the forge");
+                            out.println("\"NOT ENOUGH MATERIAL\" You hear a robotic voice saying, the sound coming from the forge");
                         }
                         break;
                     case "magic_book":
-                        System.out.println("You open the book, most of the pages too faded to read. You manage to decipher some key information from it");
-                        System.out.println("\"And these are the spells the great wizard " + player.getName() + "often carries\"");
-                        System.out.println("\"illuminate: create a ball of light, relinquishing nearby darkness\"");
-                        System.out.println("\"identify: reveal the name of the closest person to you\"");
-                        System.out.println("\"eliminate: kill a person of your choice\"");
-                        System.out.println("\"rejuvenate: heal a person of your choice (works on the undead!)\"");
-                        System.out.println("\"mesmerize: put a person of your choice in a trance like state\"");
-                        System.out.println("\"descend: teleport to the ground below you (perfect for great heights!)\"");
-                        System.out.println("");
+                        out.println("You open the book, most of the pages too faded to read. You manage to decipher some key information from it");
+                        out.println("\"And these are the spells the great wizard " + player.getName() + "often carries\"");
+                        out.println("\"illuminate: create a ball of light, relinquishing nearby darkness\"");
+                        out.println("\"identify: reveal the name of the closest person to you\"");
+                        out.println("\"eliminate: kill a person of your choice\"");
+                        out.println("\"rejuvenate: heal a person of your choice (works on the undead!)\"");
+                        out.println("\"mesmerize: put a person of your choice in a trance like state\"");
+                        out.println("\"descend: teleport to the ground below you (perfect for great heights!)\"");
+                        out.println("");
                         wait(5000);
-                        System.out.println("\"Be warned! Weapons made of platinum create a null field around them. Absorbing all magic targeted near them\"");
-                        System.out.println("");
-                        System.out.println("\"Spells can also come in single use scrolls (see one attached at the back of the book)\"");
+                        out.println("\"Be warned! Weapons made of platinum create a null field around them. Absorbing all magic targeted near them\"");
+                        out.println("");
+                        out.println("\"Spells can also come in single use scrolls (see one attached at the back of the book)\"");
                         wait(2000);
-                        System.out.println("On the final page of the book you find a scroll for the spell rejuvenate");
-                        System.out.println("One glance at it, and you can tell it's a fake");
-                        System.out.println("");
+                        out.println("On the final page of the book you find a scroll for the spell rejuvenate");
+                        out.println("One glance at it, and you can tell it's a fake");
+                        out.println("");
                         break;
                     case "riddle_book":
-                        System.out.println("You open the book, most of the pages too faded to read. You find a single legible riddle ");
-                        System.out.println("Riddle:\nThrow me out of a the window and you see a grieving wife.\nBring me back, but through the door and you see someone giving life.\nWhat am I?");
-                        System.out.println("Answer: n");
-                        System.out.println("Explanation:\nIf you remove the letter n from the word \"window\" you get the word \"widow\": a grieving wife");
-                        System.out.println("If you add the letter n to the middle of the word \"door\" you get the word \"donor\": someone giving life");
-                        System.out.println("");
+                        out.println("You open the book, most of the pages too faded to read. You find a single legible riddle ");
+                        out.println("Riddle:\nThrow me out of a the window and you see a grieving wife.\nBring me back, but through the door and you see someone giving life.\nWhat am I?");
+                        out.println("Answer: n");
+                        out.println("Explanation:\nIf you remove the letter n from the word \"window\" you get the word \"widow\": a grieving wife");
+                        out.println("If you add the letter n to the middle of the word \"door\" you get the word \"donor\": someone giving life");
+                        out.println("");
                         break;
                     case "glowing_pillar":
-                        System.out.println("As soon as you touch the pillar the door behind you and the pillar disappear, leaving nothing but white");
-                        System.out.println("The room collapses as you are teleported out out it");
-                        rooms.get(13).removeExit("West");
-                        rooms.get(4).removeExit("East");
-                        rooms.remove(12);
+                        out.println("As soon as you touch the pillar the door behind you and the pillar disappear, leaving nothing but white");
+                        out.println("The room collapses as you are teleported out out it");
+                        currentRoom.removeExit(Direction.WEST);
+                        world.get("workshop").removeExit(Direction.EAST);
+                        world.delete(currentRoom.getId());
                         wait(3000);
                         randomTeleport();
                         break;
@@ -811,18 +897,22 @@ public class Game {
                         break;
                 }
 
-            } else if (player.hasItem(secondWord)) {
-                if (player.getItem(secondWord).getUsable()) {
+            } else if (Spells.getScrollSpell(itemSymbol) != null && player.hasItem(itemSymbol)) {
+                readScroll(itemSymbol);
+            } else if (player.hasItem(itemSymbol)) {
+                if (player.getItem(itemSymbol).getUsable()) {
                     if (!command.hasThirdWord()) {
-                        System.out.println("Use " + secondWord + " on what?");
+                        out.println("Use " + secondWord + " on what?");
                     } else {
                         switch (secondWord) {
                             case "oil_can":
                                 if (command.getThirdWord().equals("lever_3") && currentRoom.getName().equals("elevator")) {
-                                    System.out.println("You oil lever_3, allowing to to move freely");
-                                    currentRoom.getItem("lever_3").setUsable(true);
+                                    out.println("You oil lever_3, allowing to to move freely");
+                                    Item lever = currentRoom.getItem("lever_3");
+                                    currentRoom.removeItem("lever_3");
+                                    currentRoom.addItem(lever.usableCopy());
                                 } else {
-                                    System.out.println("You can't do that!");
+                                    out.println("You can't do that!");
                                 }
                                 break;
                             default:
@@ -831,31 +921,47 @@ public class Game {
                     }
                 }
             } else {
-                System.out.println("There's no item called " + secondWord);
+                out.println("There's no item called " + secondWord);
             }
 
         }
     }
 
+    /**
+     * Learn the spell written on a scroll in the player's inventory,
+     * which crumbles once read.
+     * @param scrollSymbol The symbol of the scroll's name.
+     */
+    private void readScroll(int scrollSymbol) {
+        Spell spell = Spells.getScrollSpell(scrollSymbol);
+        if (player.hasSpell(spell)) {
+            out.println("Your spellbook already has " + spell.getName());
+            return;
+        }
+        player.removeItem(scrollSymbol);
+        player.addSpell(spell);
+        out.println("You read the scroll and it crumbles to dust. " + spell.getName() + " has been added to your spellbook");
+    }
+
     /**
      * If the room isn't dark, list the items in the room.
      */
     private void investigate(Command command) {
         Room currentRoom = player.getCurrentRoom();
         if (command.hasSecondWord()) {
-            System.out.println("Investigate what?");
+            out.println("Investigate what?");
         return;
         }
 
         if (currentRoom.getDark()) {
-            System.out.println("The room is too dark");
+            out.println("The room is too dark");
         } else if (currentRoom.isEmpty()) {
-            System.out.println("The room is empty");
+            out.println("The room is empty");
         } else {
-            System.out.println("The room contains");
-            currentRoom.showItems();
-            System.out.println("");
-            currentRoom.showObjects();
+            out.println("The room contains");
+            currentRoom.showItems(out);
+            out.println("");
+            currentRoom.showObjects(out);
         }
 
     }
@@ -868,56 +974,16 @@ public class Game {
      *                more information about (iff applicable).
      */
     private void help(Command command) {
-        System.out.println("You are clueless. You are lost. You think...");
-        System.out.println();
+        out.println("You are clueless. You are lost. You think...");
+        out.println();
         if (!command.hasSecondWord()) {
-            System.out.println(player.getCurrentRoom().getDescription());
-            System.out.println("");
-            System.out.println("Your command words are:");
+            out.println(player.getCurrentRoom().getDescription());
+            out.println("");
+            out.println("Your command words are:");
             parser.showCommands();
-            System.out.println("For more information about a command word type: help [command word]");
-        } else if (CommandWords.isCommand(command.getSecondWord())) {
-            String secondWord = command.getSecondWord();
-            switch (secondWord) {
-                case "go":
-                    System.out.println("Go to another room \nformat: go <north/south/east/west>");
-                    break;
-                case "quit":
-                    System.out.println("Quit the game\nformat: quit");
-                    break;
-                case "help":
-                    System.out.println("List available commands\nformat: help");
-                    System.out.println("Or give information about a command\nformat: help [command word]");
-                    break;
-                case "investigate":
-                    System.out.println("List the items and objects in the current room\nformat: investigate");
-                    break;
-                case "cast":
-                    System.out.println("Available spells:");
-                    player.printAvailableSpells();
-                    System.out.println("Cast a spell in your spellbook\nformat: cast [spell name]");
-                    System.out.println("Cast a spell in your spellbook on a target (if applicable)\nformat: cast [spell name] [target name]");
-                    break;
-                case "take":
-                    System.out.println("Take an item from the current room and put it in your inventory\nformat: take [item name]");
-                    break;
-                case "use":
-                    System.out.println("Use an item in your inventory or in the current room\nformat: use [item name]");
-                    System.out.println("Use an item on an object in the current room\nformat: use [item name] [object name]");
-                    break;
-                case "inventory":
-                    System.out.println("List your coin balance, the size of your inventory, the items in it and their weights\nformat: inventory");
-                    break;
-                case "back":
-                    System.out.println("Go to the previous room you were in. If used again, go back further\nformat: back");
-                    break;
-                case "drop":
-                    System.out.println("Remove an item from your inventory and place it in the room\nformat: drop [item name]");
-                    break;
-            }
-
-        } else {
-            System.out.println("Format not recognized. Type \"help\" or \"help [command word]\"");
+            out.println("For more information about a command word type: help [command word]");
+        } else if (!commandWords.showHelp(command.getSecondWord())) {
+            out.println("Format not recognized. Type \"help\" or \"help [command word]\"");
         }
 
     }
@@ -934,23 +1000,23 @@ public class Game {
 
         if (!command.hasSecondWord()) {
             // if there is no second word, we don't know where to go...
-            System.out.println("Go where?");
+            out.println("Go where?");
             return false;
         }
 
         Room currentRoom = player.getCurrentRoom();
 
         if (currentRoom.getDark()) {
-            System.out.println("The room is too dark. You can't see the exits");
+            out.println("The room is too dark. You can't see the exits");
             return false;
         }
 
         // Try to leave current room.
-        String direction = command.getSecondWord();
-        Room nextRoom = currentRoom.getExit(direction);
+        Direction direction = Direction.fromName(command.getSecondWord());
+        Room nextRoom = direction == null ? null : currentRoom.getExit(direction);
 
         if (nextRoom == null) {
-            System.out.println("There is no exit at " + direction);
+            out.println("There is no exit at " + command.getSecondWord());
         } else {
             player.walkToRoom(nextRoom);
             return enterCurrentRoomSequence();
@@ -959,6 +1025,57 @@ public class Game {
         return false;
     }
 
+    /**
+     * Walk the shortest way to a room, entering each room along the way as if the player went there.
+     * The walk stops early if a room is too dark to see its exits, if
+     * there is no longer a way there, or if something in a room sends
+     * the player somewhere else.
+     *
+     * @param command A command containing the name of the room the
+     *                user wants to go to.
+     * @return Whether or not a room along the way causes the game to end.
+     */
+    private boolean goTo(Command command) {
+        if (!command.hasSecondWord()) {
+            out.println("Go to where?");
+            return false;
+        }
+
+        int targetId = map.getTypedRoomId(command.getSecondWord());
+        Room target = targetId < 0 ? null : world.get(targetId);
+        if (target == null) {
+            out.println("There is no room called " + command.getSecondWord());
+            return false;
+        }
+
+        RoomPaths paths = world.getPaths();
+        Room currentRoom = player.getCurrentRoom();
+        if (currentRoom == target) {
+            out.println("You are already there");
+        }
+        while (currentRoom != target) {
+            if (currentRoom.getDark()) {
+                out.println("The room is too dark. You can't see the exits");
+                return false;
+            }
+            Direction direction = paths.getNextDirection(currentRoom, target);
+            if (direction == null) {
+                out.println("There is no way to " + command.getSecondWord() + " from here");
+                return false;
+            }
+            Room nextRoom = currentRoom.getExit(direction);
+            player.walkToRoom(nextRoom);
+            if (enterCurrentRoomSequence()) {
+                return true;
+            }
+            currentRoom = player.getCurrentRoom();
+            if (currentRoom != nextRoom) {
+                return false;
+            }
+        }
+        return false;
+    }
+
     /**
      * "Quit" was entered. Check the rest of the command to see
      * whether we really quit the game.
@@ -968,7 +1085,7 @@ public class Game {
      */
     private boolean quit(Command command) {
         if (command.hasSecondWord()) {
-            System.out.println("Quit what?");
+            out.println("Quit what?");
             return false;
         } else {
             return true;  // signal that we want to quit
@@ -976,15 +1093,154 @@ public class Game {
     }
 
     /**
-     * Wait for a given amount of time
+     * Save the state of the game between commands. Rooms are saved as
+     * ids, only the rooms that have changed are saved, and only the
+     * parts of them that have changed.
+     * @return The saved game.
+     */
+    public byte[] save() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream save = new DataOutputStream(bytes);
+        try {
+            save.writeInt(SAVE_MAGIC);
+            save.writeByte(SAVE_VERSION);
+            save.writeBoolean(bossIdentified);
+            save.writeLong(randomSeed);
+            player.writeState(save);
+            List<Room> changedRooms = world.getChangedRooms();
+            save.writeInt(changedRooms.size());
+            for (Room room : changedRooms) {
+                save.writeInt(room.getId());
+                room.writeState(save);
+            }
+            int[] deletedIds = world.getDeletedIds();
+            save.writeInt(deletedIds.length);
+            for (int id : deletedIds) {
+                save.writeInt(id);
+            }
+            npcs.writeState(save);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);    // can't happen when writing to memory
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Replace the state of this game with that of a saved game. The
+     * game must have been created with the same map as the saved one.
+     * @param saved The saved game.
+     * @throws IOException If the saved game is not valid.
+     */
+    public void restore(byte[] saved) throws IOException {
+        DataInputStream save = new DataInputStream(new ByteArrayInputStream(saved));
+        if (save.readInt() != SAVE_MAGIC) {
+            throw new IOException("Not a saved game");
+        }
+        int version = save.readByte();
+        if (version != SAVE_VERSION) {
+            throw new IOException("Unsupported saved game version " + version);
+        }
+
+        bossIdentified = save.readBoolean();
+        randomSeed = save.readLong();
+        world.reset();
+        player.readState(save, world);
+        int changedRoomCount = save.readInt();
+        if (changedRoomCount < 0) {
+            throw new IOException("Invalid changed room count " + changedRoomCount);
+        }
+        for (int i = 0; i < changedRoomCount; i++) {
+            world.get(world.checkId(save.readInt())).readState(save);
+        }
+        int deletedCount = save.readInt();
+        if (deletedCount < 0) {
+            throw new IOException("Invalid deleted room count " + deletedCount);
+        }
+        for (int i = 0; i < deletedCount; i++) {
+            world.delete(world.checkId(save.readInt()));
+        }
+        npcs = NPCs.readState(save, world);
+        journal.compact(saved);     // replays of this game start from the save
+    }
+
+    /**
+     * Set what decides when the game should be suspended while it waits
+     * for a command. Waiting only stops to ask it when the input has a
+     * time limit for reading, such as a network connection with a timeout.
+     * @param idleHandler Decides when to suspend the game, null to never suspend it.
+     */
+    public void setIdleHandler(IdleHandler idleHandler) {
+        this.idleHandler = idleHandler;
+    }
+
+    /**
+     * Return whether the game stopped to wait for a command without
+     * ending. A suspended game can be saved, and continued later by
+     * restoring the save into a new game and calling continuePlaying.
+     * @return Whether or not the game is suspended.
+     */
+    public boolean isSuspended() {
+        return suspended;
+    }
+
+    /**
+     * Return the journal that records everything that happens in this game.
+     * @return The game's journal.
+     */
+    public Journal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Return the player of this game.
+     * @return The player.
+     */
+    public Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * Return the rooms of this game.
+     * @return The rooms, by id and by name.
+     */
+    public RoomRegistry getWorld() {
+        return world;
+    }
+
+    /**
+     * Return the NPCs of this game.
+     * @return The NPCs.
+     */
+    public NPCs getNpcs() {
+        return npcs;
+    }
+
+    /**
+     * Return where this game's text is printed.
+     * @return The game's output.
+     */
+    public GameOutput getOutput() {
+        return out;
+    }
+
+    /**
+     * Return the clock that controls how long the game pauses for.
+     * @return The game's clock.
+     */
+    public GameClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Wait for a given amount of game time
      *
      * @param time the time you want to wait in milliseconds
      */
     private void wait(int time) {
-        try {
-            Thread.sleep(time);
-        } catch (InterruptedException ignored) {
+        if (!clock.isInstant()) {
+            out.flush();    // show everything printed before the pause
         }
+        clock.pause(time);
     }
 
 }
@@ -0,0 +1,95 @@
+/**
+ * This class controls the pauses in the game, such as those during
+ * cutscenes. It keeps track of how much game time has passed, and
+ * can be set to pause in real time, to run faster than real time,
+ * or to not pause at all so that a game can be played instantly.
+ * <p>
+ * Whatever the speed, pauses happen in the same order and the
+ * game time passed is the same.
+ */
+public class GameClock {
+    private final double speed;     // How many times faster than real time the clock runs, 0 for instant
+    private long elapsedTime;       // The game time that has passed in milliseconds
+
+    /**
+     * Create a clock that runs at a given speed.
+     * @param speed How many times faster than real time the clock runs.
+     *              If it is 0, pauses end instantly.
+     */
+    public GameClock(double speed) {
+        if (speed < 0) {
+            throw new IllegalArgumentException("speed must not be negative");
+        }
+        this.speed = speed;
+        elapsedTime = 0;
+    }
+
+    /**
+     * Create a clock that pauses in real time.
+     * @return The clock.
+     */
+    public static GameClock realTime() {
+        return new GameClock(1);
+    }
+
+    /**
+     * Create a clock that runs a given number of times faster than real time.
+     * @param speed How many times faster than real time the clock runs.
+     * @return The clock.
+     */
+    public static GameClock scaled(double speed) {
+        return new GameClock(speed);
+    }
+
+    /**
+     * Create a clock that never pauses.
+     * @return The clock.
+     */
+    public static GameClock instant() {
+        return new GameClock(0);
+    }
+
+    /**
+     * Pause for a given amount of game time.
+     * @param time The game time to pause for in milliseconds.
+     */
+    public void pause(long time) {
+        elapsedTime += time;
+        if (speed == 0) {
+            return;
+        }
+
+        long realTime = Math.round(time / speed);
+        if (realTime > 0) {
+            try {
+                Thread.sleep(realTime);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Return the game time that has passed.
+     * @return The game time that has passed in milliseconds.
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * Return whether or not the clock never pauses.
+     * @return true if pauses end instantly.
+     */
+    public boolean isInstant() {
+        return speed == 0;
+    }
+
+    /**
+     * Return how many times faster than real time the clock runs.
+     * @return The speed of the clock, 0 if it never pauses.
+     */
+    public double getSpeed() {
+        return speed;
+    }
+}
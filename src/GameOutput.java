@@ -0,0 +1,150 @@
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class collects the text a game prints. Text is held in a
+ * buffer that is reused throughout the game, and is only written
+ * to the destination when the buffer is flushed, which the game
+ * does once per turn, or when the buffer gets too large. The
+ * destination can be the terminal, a network connection, or a
+ * buffer in memory.
+ * <p>
+ * Text that has already been encoded, such as the files held by Assets,
+ * can be written straight to the destination without being copied into
+ * the buffer.
+ */
+public class GameOutput {
+    private static final int MAX_BUFFERED = 16384;  // The number of characters held before flushing early
+
+    private final OutputStream destination;     // Where the text is written to when flushed
+    private final StringBuilder text;           // The text printed since the last flush
+    private final CharsetEncoder encoder;       // Converts the text to UTF-8
+    private final ByteBuffer bytes;             // Holds encoded text before it is written
+
+    /**
+     * Create an output that writes to a given stream.
+     * @param destination The stream the text is written to.
+     */
+    public GameOutput(OutputStream destination) {
+        this.destination = destination;
+        text = new StringBuilder(1024);
+        encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        bytes = ByteBuffer.allocate(4096);
+    }
+
+    /**
+     * Create an output that writes to the terminal.
+     * @return The output.
+     */
+    public static GameOutput toTerminal() {
+        return new GameOutput(new FileOutputStream(FileDescriptor.out));
+    }
+
+    /**
+     * Add some text to the output.
+     * @param s The text to add.
+     */
+    public void print(CharSequence s) {
+        text.append(s);
+        flushIfFull();
+    }
+
+    /**
+     * Add some text to the output, followed by a new line.
+     * @param s The text to add.
+     */
+    public void println(CharSequence s) {
+        text.append(s).append('\n');
+        flushIfFull();
+    }
+
+    /**
+     * Add a new line to the output.
+     */
+    public void println() {
+        text.append('\n');
+        flushIfFull();
+    }
+
+    /**
+     * Add some text that has already been encoded as UTF-8 to the
+     * output. Any text added before it is written to the destination
+     * first, and then the bytes are written in one go.
+     * @param encoded The encoded text, which isn't changed.
+     * @throws UncheckedIOException If the text could not be written.
+     */
+    public void write(byte[] encoded) {
+        try {
+            writeText();
+            destination.write(encoded);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flush the output if the buffer holds too much text.
+     */
+    private void flushIfFull() {
+        if (text.length() >= MAX_BUFFERED) {
+            flush();
+        }
+    }
+
+    /**
+     * Write all the text added since the last flush to the destination,
+     * and flush the destination, even if no text has been added, so that
+     * bytes written straight to it are sent too.
+     * @throws UncheckedIOException If the text could not be written.
+     */
+    public void flush() {
+        try {
+            writeText();
+            destination.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Encode the text added since the last flush, write it to the
+     * destination, and empty the buffer.
+     */
+    private void writeText() throws IOException {
+        if (text.length() == 0) {
+            return;
+        }
+
+        try {
+            CharBuffer chars = CharBuffer.wrap(text);
+            encoder.reset();
+            while (encoder.encode(chars, bytes, true).isOverflow()) {
+                writeBytes();
+            }
+            while (encoder.flush(bytes).isOverflow()) {
+                writeBytes();
+            }
+            writeBytes();
+        } finally {
+            text.setLength(0);
+        }
+    }
+
+    /**
+     * Write the encoded text to the destination and empty the byte buffer.
+     */
+    private void writeBytes() throws IOException {
+        destination.write(bytes.array(), 0, bytes.position());
+        bytes.clear();
+    }
+}
@@ -0,0 +1,218 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PushbackReader;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class hosts games of "The Clockwork Tower" over TCP, so many
+ * players can play at once from a single program. Every connection
+ * gets its own game, with its own player, map and NPCs, which is
+ * played on its own thread. Virtual threads are used when the Java
+ * version supports them, so thousands of games can be hosted at once.
+ * <p>
+ * Players connect with any line based client (such as telnet or nc),
+ * and the game ends when they quit or disconnect.
+ */
+public class GameServer {
+    private static final int OUTPUT_BUFFER_SIZE = 8192;     // The size of each connection's output buffer
+
+    private final ServerSocket serverSocket;        // Accepts new connections
+    private final ExecutorService sessions;         // Runs a game for each connection
+    private final double clockSpeed;                // The speed of each game's clock
+    private final SessionManager sessionManager;    // Saves idle games to disk, null to keep every game in memory
+    private final Set<Socket> connections;          // The connections currently open
+    private final AtomicInteger sessionsStarted;    // The number of games started
+    private final AtomicInteger sessionsFinished;   // The number of games that have ended
+
+    /**
+     * Create a server listening for connections on the local machine.
+     * @param port The port to listen on, 0 for any free port.
+     * @param clockSpeed The speed of each game's clock, 1 for real time or 0 for instant.
+     * @throws IOException If the port could not be listened on.
+     */
+    public GameServer(int port, double clockSpeed) throws IOException {
+        this(port, clockSpeed, null);
+    }
+
+    /**
+     * Create a server listening for connections on the local machine,
+     * which saves games to disk while they wait for the player.
+     * @param port The port to listen on, 0 for any free port.
+     * @param clockSpeed The speed of each game's clock, 1 for real time or 0 for instant.
+     * @param sessionManager Decides which games are saved to disk, null to keep every game in memory.
+     * @throws IOException If the port could not be listened on.
+     */
+    public GameServer(int port, double clockSpeed, SessionManager sessionManager) throws IOException {
+        this.sessionManager = sessionManager;
+        serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        sessions = newSessionExecutor();
+        this.clockSpeed = clockSpeed;
+        connections = ConcurrentHashMap.newKeySet();
+        sessionsStarted = new AtomicInteger();
+        sessionsFinished = new AtomicInteger();
+    }
+
+    /**
+     * Create an executor that runs each task on a new virtual thread,
+     * or on a pooled platform thread if virtual threads aren't available.
+     * @return The executor.
+     */
+    static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Return the port the server is listening on.
+     * @return The port number.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Return the number of games currently being played.
+     * @return The number of games being played.
+     */
+    public int getActiveSessions() {
+        return sessionsStarted.get() - sessionsFinished.get();
+    }
+
+    /**
+     * Accept connections, starting a game for each one, until the server is closed.
+     */
+    public void serve() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.add(socket);
+                sessionsStarted.incrementAndGet();
+                sessions.execute(() -> runSession(socket));
+            } catch (SocketException e) {
+                break;      // the server socket was closed
+            } catch (IOException e) {
+                System.err.println("Could not accept connection: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Play a game over a connection, closing the connection when the game ends.
+     * @param socket The connection to the player.
+     */
+    private void runSession(Socket socket) {
+        SessionManager.Session session = null;
+        try {
+            socket.setTcpNoDelay(true);
+            PushbackReader input = new PushbackReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Game game = new Game(input, createOutput(socket), new GameClock(clockSpeed));
+            if (sessionManager == null) {
+                game.play();
+                return;
+            }
+
+            session = sessionManager.open();
+            game.setIdleHandler(session);
+            socket.setSoTimeout(sessionManager.getCheckInterval());
+            game.play();
+            while (game.isSuspended()) {
+                sessionManager.hibernate(session, game);
+                game = null;
+
+                // wait for the player's next command without holding on to the game
+                socket.setSoTimeout(0);
+                int next = input.read();
+                if (next < 0) {
+                    break;
+                }
+                input.unread(next);
+                socket.setSoTimeout(sessionManager.getCheckInterval());
+
+                game = sessionManager.wake(session, input, createOutput(socket), new GameClock(clockSpeed));
+                game.continuePlaying();
+            }
+        } catch (IOException | UncheckedIOException ignored) {
+            // the player disconnected
+        } finally {
+            if (session != null) {
+                sessionManager.close(session);
+            }
+            connections.remove(socket);
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+            sessionsFinished.incrementAndGet();
+        }
+    }
+
+    /**
+     * Create the output for a game played over a connection.
+     */
+    private static GameOutput createOutput(Socket socket) throws IOException {
+        return new GameOutput(new BufferedOutputStream(socket.getOutputStream(), OUTPUT_BUFFER_SIZE));
+    }
+
+    /**
+     * Stop accepting connections and close every open connection,
+     * ending the games being played on them.
+     */
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+        }
+        for (Socket socket : connections) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+        sessions.shutdown();
+    }
+
+    /**
+     * Start a server.
+     * @param args The port to listen on (default 4000), the speed of the
+     *             game clocks (default 1, real time), and optionally the
+     *             number of games kept in memory and how many seconds a
+     *             game can wait for the player before being saved to disk.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+        double clockSpeed = args.length > 1 ? Double.parseDouble(args[1]) : 1;
+        SessionManager sessionManager = null;
+        if (args.length > 3) {
+            sessionManager = new SessionManager(Integer.parseInt(args[2]), Long.parseLong(args[3]) * 1000,
+                    Files.createTempDirectory("clockwork-sessions"));
+        }
+
+        Assets.preload("logo.txt", "tower.txt");
+        GameServer server = new GameServer(port, clockSpeed, sessionManager);
+        SessionManager finalSessionManager = sessionManager;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            if (finalSessionManager != null) {
+                System.out.println(finalSessionManager);
+            }
+            System.out.println(Assets.summary());
+        }));
+        System.out.println("Hosting The Clockwork Tower on port " + server.getPort());
+        server.serve();
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * This interface is implemented by objects that decide when a game
+ * that is waiting for a command should be suspended, so that it can
+ * be put away until the player types something.
+ */
+public interface IdleHandler {
+
+    /**
+     * Called after the game has played a command.
+     */
+    void commandPlayed();
+
+    /**
+     * Called every so often while the game waits for a command.
+     * @param idleTime How long the game has been waiting, in nanoseconds.
+     * @return Whether or not the game should be suspended.
+     */
+    boolean shouldSuspend(long idleTime);
+}
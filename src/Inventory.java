@@ -1,21 +1,43 @@
-import java.util.ArrayList;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 
 /**
  * This class stores items with a limited weight capacity.
  * It also includes methods that allow you to access and
  * mutate the inventory in different ways.
+ * <p>
+ * Items with the same name are kept together in a stack, and the
+ * stacks are found by the symbol of their name, so looking up,
+ * counting and removing items doesn't depend on how many items there
+ * are. The array of stacks only grows as far as the symbols of the
+ * names added, since symbols are shared with every other name in the
+ * program, such as the names of NPCs. The stacks are also linked
+ * together in the order their names were first added, so they can be
+ * listed in that order. The total weight is kept up to date as items
+ * are added and removed.
  */
 public class Inventory {
-    private final ArrayList<Item> items;
+    private static final ItemStack[] NO_STACKS = new ItemStack[0];     // Shared by every inventory until its first item
+
+    private ItemStack[] stacks;     // The stack of items with each name, by the symbol of the name, grown as needed
+    private ItemStack first;        // The stack whose name was added first, null if the inventory is empty
+    private ItemStack last;         // The stack whose name was added last
     private final int maxSize;
+    private int itemCount;          // The number of items in the inventory
+    private int totalWeight;        // The sum of the weights of the items in the inventory
 
     /**
      * Create an instance on Inventory, setting it's maximum size.
      * @param maxSize The highest sum of weights in the inventory.
      */
     public Inventory(int maxSize) {
-        items = new ArrayList<>();
+        stacks = NO_STACKS;
         this.maxSize = maxSize;
+        itemCount = 0;
+        totalWeight = 0;
     }
 
     /**
@@ -29,26 +51,56 @@ public class Inventory {
             return false;
         }
 
-        if (item.getWeight() + getTotalWeight() > maxSize) {
+        if (item.getWeight() + totalWeight > maxSize) {
             return false;
         }
 
-        items.add(item);
+        stack(item);
         return true;
     }
 
+    /**
+     * Put an item on the stack of items with its name,
+     * starting a new stack if there isn't one.
+     * @param item The item.
+     */
+    private void stack(Item item) {
+        int symbol = item.getSymbol();
+        if (symbol >= stacks.length) {
+            stacks = Arrays.copyOf(stacks, Math.max(symbol + 1, stacks.length * 2));
+        }
+        if (stacks[symbol] == null) {
+            ItemStack stack = new ItemStack();
+            stack.previous = last;
+            if (last == null) {
+                first = stack;
+            } else {
+                last.next = stack;
+            }
+            last = stack;
+            stacks[symbol] = stack;
+        }
+        stacks[symbol].items.addLast(item);
+        itemCount++;
+        totalWeight += item.getWeight();
+    }
+
     /**
      * Return the sum of the weights of the items in the inventory.
      * @return The total weight of the inventory.
      */
-    private int getTotalWeight() {
-        int totalWeight = 0;
-        for (Item item : items) {
-            totalWeight += item.getWeight();
-        }
+    public int getTotalWeight() {
         return totalWeight;
     }
 
+    /**
+     * Return the number of items in the inventory.
+     * @return The number of items in the inventory.
+     */
+    public int getItemCount() {
+        return itemCount;
+    }
+
     /**
      * Return max size.
      * @return The maximum size of the inventory.
@@ -59,14 +111,18 @@ public class Inventory {
 
     /**
      * Print the names of the items in the inventory,
-     * each of which is followed by it's weight.
+     * each of which is followed by it's weight. Items
+     * with the same name are printed together.
+     * @param out The output to print to.
      */
-    public void showItemsAndWeights() {
-        System.out.println("");
-        for (Item item : items) {
-            System.out.println(item.getName() + ", weight: " + item.getWeight());
+    public void showItemsAndWeights(GameOutput out) {
+        out.println("");
+        for (ItemStack stack = first; stack != null; stack = stack.next) {
+            for (Item item : stack.items) {
+                out.println(item.getName() + ", weight: " + item.getWeight());
+            }
         }
-        System.out.println();
+        out.println();
     }
 
     /**
@@ -75,7 +131,60 @@ public class Inventory {
      * @param itemName The name of the item to remove.
      */
     public void removeItem(String itemName) {
-        items.remove(getItem(itemName));
+        removeItems(Symbols.lookup(itemName), 1);
+    }
+
+    /**
+     * Remove a number of items with a specified name, the first
+     * ones added first. If there are fewer than that many, all
+     * of them are removed.
+     *
+     * @param itemSymbol The symbol of the name of the items to remove.
+     * @param count The number of items to remove.
+     * @return The number of items removed.
+     */
+    public int removeItems(int itemSymbol, int count) {
+        ItemStack stack = getStack(itemSymbol);
+        if (stack == null) {
+            return 0;
+        }
+        int removed = 0;
+        while (removed < count && !stack.items.isEmpty()) {
+            totalWeight -= stack.items.removeFirst().getWeight();
+            removed++;
+        }
+        itemCount -= removed;
+        if (stack.items.isEmpty()) {
+            unlink(stack);
+            stacks[itemSymbol] = null;
+        }
+        return removed;
+    }
+
+    /**
+     * Take an empty stack out of the list of stacks.
+     * @param stack The stack.
+     */
+    private void unlink(ItemStack stack) {
+        if (stack.previous == null) {
+            first = stack.next;
+        } else {
+            stack.previous.next = stack.next;
+        }
+        if (stack.next == null) {
+            last = stack.previous;
+        } else {
+            stack.next.previous = stack.previous;
+        }
+    }
+
+    /**
+     * Return the stack of items with a given name.
+     * @param itemSymbol The symbol of the name, or -1 for a name without one.
+     * @return The stack, or null if there are no items with that name.
+     */
+    private ItemStack getStack(int itemSymbol) {
+        return itemSymbol >= 0 && itemSymbol < stacks.length ? stacks[itemSymbol] : null;
     }
 
     /**
@@ -85,13 +194,8 @@ public class Inventory {
      * @return The number of items with the given name.
      */
     public int numberOfItem(String itemName) {
-        int itemCount = 0;
-        for (Item item : items) {
-            if (item.getName().equals(itemName)) {
-                itemCount++;
-            }
-        }
-        return itemCount;
+        ItemStack stack = getStack(Symbols.lookup(itemName));
+        return stack == null ? 0 : stack.items.size();
     }
 
     /**
@@ -102,12 +206,53 @@ public class Inventory {
      * @return The with the give name.
      */
     public Item getItem(String itemName) {
-        for (Item item : items) {
-            if (item.getName().equals(itemName)) {
-                return item;
+        return getItem(Symbols.lookup(itemName));
+    }
+
+    /**
+     * Return the first item in the inventory that has a specified name.
+     * If there is no item with that name, return null.
+     *
+     * @param itemSymbol The symbol of the name of the item to search for.
+     * @return The with the give name.
+     */
+    public Item getItem(int itemSymbol) {
+        ItemStack stack = getStack(itemSymbol);
+        return stack == null ? null : stack.items.peekFirst();
+    }
+
+    /**
+     * Write the items in the inventory to a saved game.
+     * @param out The stream to write to.
+     * @throws IOException If the items could not be written.
+     */
+    public void writeState(DataOutputStream out) throws IOException {
+        out.writeShort(itemCount);
+        for (ItemStack stack = first; stack != null; stack = stack.next) {
+            for (Item item : stack.items) {
+                item.write(out);
             }
         }
-        return null;
+    }
+
+    /**
+     * Replace the items in the inventory with those in a saved game.
+     * @param in The stream to read from.
+     * @throws IOException If the items could not be read.
+     */
+    public void readState(DataInputStream in) throws IOException {
+        Arrays.fill(stacks, null);
+        first = null;
+        last = null;
+        itemCount = 0;
+        totalWeight = 0;
+        int savedCount = in.readShort();
+        if (savedCount < 0) {
+            throw new IOException("Invalid item count " + savedCount);
+        }
+        for (int i = 0; i < savedCount; i++) {
+            stack(Item.read(in));
+        }
     }
 
     /**
@@ -116,6 +261,26 @@ public class Inventory {
      * @return Whether or not the inventory contains the item.
      */
     public boolean hasItem(String itemName) {
-        return getItem(itemName) != null;
+        return hasItem(Symbols.lookup(itemName));
+    }
+
+    /**
+     * Check if the inventory contains an item with a given name.
+     * @param itemSymbol The symbol of the item's name.
+     * @return Whether or not the inventory contains the item.
+     */
+    public boolean hasItem(int itemSymbol) {
+        return getStack(itemSymbol) != null;
+    }
+
+    /**
+     * This class holds the items in an inventory that share a name,
+     * the first one added first, and links to the stacks added
+     * before and after it.
+     */
+    private static class ItemStack {
+        private final ArrayDeque<Item> items = new ArrayDeque<>();  // The items, the first one added first
+        private ItemStack previous;     // The stack added before this one, null if this is the first
+        private ItemStack next;         // The stack added after this one, null if this is the last
     }
 }
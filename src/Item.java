@@ -1,14 +1,21 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 
 /**
  * This class represents an item in the game. Storing it's
  * name, weight, whether it can be picked up or not and
  * whether it can be used or not.
+ * <p>
+ * Items can't be changed, so the items a room starts with can be
+ * shared by every game.
  */
 public class Item {
     private final String name;
+    private final int symbol;           // The symbol of the item's name
     private final int weight;
     private final boolean obtainable;
-    private boolean usable;
+    private final boolean usable;
 
     /**
      * Create an item, setting all of the variables.
@@ -19,6 +26,7 @@ public class Item {
      */
     public Item(String name, int weight, boolean obtainable, boolean usable) {
         this.name = name;
+        symbol = Symbols.intern(name);
         this.weight = weight;
         this.obtainable = obtainable;
         this.usable = usable;
@@ -40,6 +48,14 @@ public class Item {
         return name;
     }
 
+    /**
+     * Get the symbol of the item's name.
+     * @return The symbol of the item's name.
+     */
+    public int getSymbol() {
+        return symbol;
+    }
+
     /**
      * Get whether the item is obtainable or not.
      * @return Whether or not the item is obtainable.
@@ -49,11 +65,11 @@ public class Item {
     }
 
     /**
-     * Set usable to a given value.
-     * @param usable The value to set it to
+     * Return a copy of this item that can be used.
+     * @return The usable copy of the item.
      */
-    public void setUsable(boolean usable) {
-        this.usable = usable;
+    public Item usableCopy() {
+        return new Item(name, weight, obtainable, true);
     }
 
     /**
@@ -63,4 +79,39 @@ public class Item {
     public boolean getUsable() {
         return usable;
     }
+
+    /**
+     * Return whether another item is the same type of item as
+     * this one: it has the same name and the same properties.
+     * @param other The other item.
+     * @return Whether or not the items are the same type.
+     */
+    public boolean isSameType(Item other) {
+        return symbol == other.symbol && weight == other.weight && obtainable == other.obtainable
+                && usable == other.usable;
+    }
+
+    /**
+     * Write the item to a saved game.
+     * @param out The stream to write to.
+     * @throws IOException If the item could not be written.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeUTF(name);
+        out.writeShort(weight);
+        out.writeByte((obtainable ? 1 : 0) | (usable ? 2 : 0));
+    }
+
+    /**
+     * Read an item from a saved game.
+     * @param in The stream to read from.
+     * @return The item.
+     * @throws IOException If the item could not be read.
+     */
+    public static Item read(DataInputStream in) throws IOException {
+        String name = in.readUTF();
+        int weight = in.readShort();
+        int flags = in.readByte();
+        return new Item(name, weight, (flags & 1) != 0, (flags & 2) != 0);
+    }
 }
@@ -0,0 +1,159 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class records everything that happens in a game, so that the
+ * game can be rebuilt exactly by replaying it. It holds the seed the
+ * game's random events were based on, and every line the player
+ * typed, in order: their name, their commands, and their answers to
+ * questions.
+ * <p>
+ * To keep replays short, every so often the game saves its state and
+ * the journal replaces all of the lines before it with the save. A
+ * replay then restores the save and only plays the lines after it.
+ */
+public class Journal {
+    private static final int JOURNAL_MAGIC = 0x43574a31;    // "CWJ1", marks the start of a saved journal
+    private static final int DEFAULT_SAVE_INTERVAL = 100;   // The number of commands between saves
+
+    private final long seed;                    // The seed of the game's random events
+    private final int saveInterval;             // The number of commands between saves
+    private byte[] save;                        // The latest save of the game, null if there isn't one
+    private final ArrayList<String> lines;      // The lines typed since the latest save
+    private int commandsSinceSave;              // The number of commands played since the latest save
+
+    /**
+     * Create an empty journal for a game.
+     * @param seed The seed of the game's random events.
+     */
+    public Journal(long seed) {
+        this(seed, DEFAULT_SAVE_INTERVAL);
+    }
+
+    /**
+     * Create an empty journal for a game.
+     * @param seed The seed of the game's random events.
+     * @param saveInterval The number of commands between saves.
+     */
+    public Journal(long seed, int saveInterval) {
+        this.seed = seed;
+        this.saveInterval = saveInterval;
+        save = null;
+        lines = new ArrayList<>();
+        commandsSinceSave = 0;
+    }
+
+    /**
+     * Record a line typed by the player.
+     * @param line The line.
+     */
+    public void record(String line) {
+        lines.add(line);
+    }
+
+    /**
+     * Record that a command has been played, and check whether
+     * it's time for the game to be saved.
+     * @return Whether or not the game should now be saved.
+     */
+    public boolean commandPlayed() {
+        commandsSinceSave++;
+        return commandsSinceSave >= saveInterval;
+    }
+
+    /**
+     * Replace all of the lines recorded so far with a save of the game.
+     * @param save The save of the game after the last line recorded.
+     */
+    public void compact(byte[] save) {
+        this.save = save;
+        lines.clear();
+        commandsSinceSave = 0;
+    }
+
+    /**
+     * @return The seed of the game's random events.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return The lines typed since the latest save.
+     */
+    public List<String> getLines() {
+        return lines;
+    }
+
+    /**
+     * Rebuild the game this journal was recorded from, without
+     * pausing and without printing anything.
+     * @return The game in the state it was in after the last line recorded.
+     * @throws IOException If the journal's save is not valid.
+     */
+    public Game replay() throws IOException {
+        StringBuilder script = new StringBuilder();
+        for (String line : lines) {
+            script.append(line).append('\n');
+        }
+
+        Game game = new Game(new StringReader(script.toString()), new GameOutput(OutputStream.nullOutputStream()),
+                GameClock.instant(), seed);
+        if (save == null) {
+            game.play();
+        } else {
+            game.restore(save);
+            game.resume();
+        }
+        return game;
+    }
+
+    /**
+     * Write the journal, so the game can be rebuilt later.
+     * @param out The stream to write to.
+     * @throws IOException If the journal could not be written.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(JOURNAL_MAGIC);
+        out.writeLong(seed);
+        out.writeInt(saveInterval);
+        out.writeInt(commandsSinceSave);
+        out.writeInt(save == null ? -1 : save.length);
+        if (save != null) {
+            out.write(save);
+        }
+        out.writeInt(lines.size());
+        for (String line : lines) {
+            out.writeUTF(line);
+        }
+    }
+
+    /**
+     * Read a journal that was written with write.
+     * @param in The stream to read from.
+     * @return The journal.
+     * @throws IOException If the journal could not be read.
+     */
+    public static Journal read(DataInputStream in) throws IOException {
+        if (in.readInt() != JOURNAL_MAGIC) {
+            throw new IOException("Not a journal");
+        }
+        Journal journal = new Journal(in.readLong(), in.readInt());
+        journal.commandsSinceSave = in.readInt();
+        int saveLength = in.readInt();
+        if (saveLength >= 0) {
+            journal.save = new byte[saveLength];
+            in.readFully(journal.save);
+        }
+        int lineCount = in.readInt();
+        for (int i = 0; i < lineCount; i++) {
+            journal.lines.add(in.readUTF());
+        }
+        return journal;
+    }
+}
@@ -0,0 +1,176 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * This class measures how well a GameServer copes with many players.
+ * It plays a number of games at once against a server on the local
+ * machine, each following the same script, and reports how many
+ * games were played per second for each processor, and how long
+ * the server took to respond to each command.
+ * <p>
+ * If no port is given, a server with instant game clocks is started
+ * in the same program.
+ */
+public class LoadTestClient {
+    private static final String[] SCRIPT = {
+            "tester", "look", "cast illuminate", "investigate", "take gold_coin", "go east",
+            "take gold_coin", "go north", "go south", "inventory", "help", "back", "back", "quit"
+    };
+
+    private final int port;             // The port the server is listening on
+    private final byte[][] script;      // The lines sent in each game, encoded
+
+    /**
+     * Create a client for a server on the local machine.
+     * @param port The port the server is listening on.
+     */
+    public LoadTestClient(int port) {
+        this.port = port;
+        script = new byte[SCRIPT.length][];
+        for (int i = 0; i < SCRIPT.length; i++) {
+            script[i] = (SCRIPT[i] + "\n").getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Play one game, following the script.
+     * @return How long the server took to respond to each line, in nanoseconds.
+     * @throws IOException If the connection failed.
+     */
+    public long[] playGame() throws IOException {
+        long[] latencies = new long[script.length];
+        byte[] buffer = new byte[8192];
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+
+            readUntilPrompt(in, buffer);    // the name prompt
+            for (int i = 0; i < script.length; i++) {
+                long start = System.nanoTime();
+                out.write(script[i]);
+                out.flush();
+                if (i < script.length - 1) {
+                    readUntilPrompt(in, buffer);
+                } else {
+                    while (in.read(buffer) >= 0) {
+                        // read the rest of the game until the server disconnects
+                    }
+                }
+                latencies[i] = System.nanoTime() - start;
+            }
+        }
+        return latencies;
+    }
+
+    /**
+     * Read from the server until it prints a prompt for input.
+     */
+    private static void readUntilPrompt(InputStream in, byte[] buffer) throws IOException {
+        byte last = 0;
+        byte secondLast = 0;
+        while (true) {
+            int read = in.read(buffer);
+            if (read < 0) {
+                throw new IOException("The server disconnected");
+            }
+            if (read == 1) {
+                secondLast = last;
+                last = buffer[0];
+            } else if (read > 1) {
+                secondLast = buffer[read - 2];
+                last = buffer[read - 1];
+            }
+            if (secondLast == '>' && last == ' ') {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Run a load test, printing the results.
+     * @param args The number of games to play (default 10000), the number
+     *             played at once (default 1000), and the port of the server
+     *             (default: start a server in this program).
+     */
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        GameServer server = null;
+        int port;
+        if (args.length > 2) {
+            port = Integer.parseInt(args[2]);
+        } else {
+            server = new GameServer(0, 0);
+            port = server.getPort();
+            new Thread(server::serve).start();
+        }
+
+        LoadTestClient client = new LoadTestClient(port);
+        ExecutorService players = GameServer.newSessionExecutor();
+        long[][] results = new long[games][];
+        int failures = 0;
+
+        long start = System.nanoTime();
+        for (int batch = 0; batch < games; batch += concurrency) {
+            ArrayList<Future<long[]>> futures = new ArrayList<>();
+            for (int i = batch; i < Math.min(games, batch + concurrency); i++) {
+                futures.add(players.submit(client::playGame));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results[batch + i] = futures.get(i).get();
+                } catch (Exception e) {
+                    failures++;
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        players.shutdown();
+        if (server != null) {
+            server.close();
+        }
+
+        int turns = 0;
+        for (long[] latencies : results) {
+            turns += latencies == null ? 0 : latencies.length;
+        }
+        long[] allLatencies = new long[turns];
+        int next = 0;
+        for (long[] latencies : results) {
+            if (latencies != null) {
+                System.arraycopy(latencies, 0, allLatencies, next, latencies.length);
+                next += latencies.length;
+            }
+        }
+        Arrays.sort(allLatencies);
+
+        double seconds = elapsed / 1e9;
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("Games played: " + (games - failures) + " (" + failures + " failed) in " + String.format("%.2f", seconds) + "s");
+        System.out.println("Games per second per core: " + String.format("%.1f", (games - failures) / seconds / cores) + " (" + cores + " cores)");
+        if (turns > 0) {
+            System.out.println("Turn latency p50: " + percentile(allLatencies, 0.50) / 1000 + "us");
+            System.out.println("Turn latency p99: " + percentile(allLatencies, 0.99) / 1000 + "us");
+            System.out.println("Turn latency max: " + allLatencies[turns - 1] / 1000 + "us");
+        }
+    }
+
+    /**
+     * Return a percentile of some sorted values.
+     */
+    private static long percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+}
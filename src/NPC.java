@@ -1,41 +1,89 @@
-import java.util.Stack;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 
 /**
  * This class represents an NPC in the game (Non playable character),
- * storing it's name, the room it is in, the rooms it will
+ * storing it's name, the room it is in, the route it will
  * move along, and whether or not it is asleep.
+ * <p>
+ * The route is shared with the world template, and the NPC only
+ * keeps its cursor, how far it has got along the route.
  */
 public class NPC {
     private final String name;
+    private final int symbol;           // The symbol of the NPC's name
+    private final RoomRegistry world;   // The rooms of the game, by id
+    private final int routeNumber;      // The position of the NPC's route in the world template
+    private final Route route;          // The route the NPC travels along
+    private int cursor;                 // How far the NPC has got along its route
     private Room currentRoom;
-    private final Stack<Room> route;
     private boolean asleep;
 
     /**
      * Create an instance of NPC, setting it's name and route.
-     * Set it's current room to that at the top of the stack,
+     * Set it's current room to the first room of the route,
      * and asleep to false.
      *
      * @param name The name of the NPC.
-     * @param route The rooms it will travel along throughout the game.
+     * @param routeNumber The position of the route it will travel along in the world template.
+     * @param world The rooms of the game, by id.
      */
-    public NPC(String name, Stack<Room> route) {
+    public NPC(String name, int routeNumber, RoomRegistry world) {
+        this(name, routeNumber, world, 0, false);
+    }
+
+    /**
+     * Create an instance of NPC that is part way through its route.
+     *
+     * @param name The name of the NPC.
+     * @param routeNumber The position of the route it travels along in the world template.
+     * @param world The rooms of the game, by id.
+     * @param cursor How far it has got along its route.
+     * @param asleep Whether or not it is asleep.
+     */
+    private NPC(String name, int routeNumber, RoomRegistry world, int cursor, boolean asleep) {
         this.name = name;
-        currentRoom = route.pop();
-        this.route = route;
-        asleep = false;
+        symbol = Symbols.intern(name);
+        this.world = world;
+        this.routeNumber = routeNumber;
+        route = world.getTemplate().getRoute(routeNumber);
+        this.cursor = cursor;
+        currentRoom = world.get(route.getRoom(cursor));
+        this.asleep = asleep;
     }
 
     /**
      * If the NPC is awake move it to the next room in it's route.
-     * and remove that room from the upcoming.
      */
     public void moveAlongRoute() {
-        if (!route.empty() && !asleep) {
-            currentRoom = route.pop();
+        if (advanceCursor()) {
+            enterRouteRoom();
         }
     }
 
+    /**
+     * If the NPC is awake move its cursor one step along its route,
+     * without moving it to the room it reaches. Rooms aren't looked
+     * up, so NPCs of the same game can do this on different threads.
+     * @return Whether or not the NPC should now be in a different room.
+     */
+    public boolean advanceCursor() {
+        if (asleep || currentRoom == null) {
+            return false;
+        }
+        int previousRoom = route.getRoom(cursor);
+        cursor = route.advance(cursor);
+        return route.getRoom(cursor) != previousRoom;
+    }
+
+    /**
+     * Move the NPC to the room its cursor has reached.
+     */
+    public void enterRouteRoom() {
+        currentRoom = world.get(route.getRoom(cursor));
+    }
+
     /**
      * Return the room the NPC is currently in.
      * @return The room the NPC is currently in.
@@ -52,6 +100,14 @@ public class NPC {
         return name;
     }
 
+    /**
+     * Return the symbol of the NPC's name.
+     * @return The symbol of the NPC's name.
+     */
+    public int getSymbol() {
+        return symbol;
+    }
+
     /**
      * Set the NPCs current room to null, removing
      * it from the game's internal map.
@@ -81,4 +137,41 @@ public class NPC {
     public boolean getAsleep() {
         return asleep;
     }
+
+    /**
+     * Write the NPC to a saved game. Only its route's position
+     * and its cursor are written, not the rooms of its route,
+     * with a cursor of -1 if it's been removed from the map.
+     * @param out The stream to write to.
+     * @throws IOException If the NPC could not be written.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeUTF(name);
+        out.writeBoolean(asleep);
+        out.writeInt(routeNumber);
+        out.writeInt(currentRoom == null ? -1 : cursor);
+    }
+
+    /**
+     * Read an NPC from a saved game.
+     * @param in The stream to read from.
+     * @param world The rooms of the game, by id.
+     * @return The NPC.
+     * @throws IOException If the NPC could not be read.
+     */
+    public static NPC read(DataInputStream in, RoomRegistry world) throws IOException {
+        String name = in.readUTF();
+        boolean asleep = in.readBoolean();
+        int routeNumber = in.readInt();
+        int cursor = in.readInt();
+        if (routeNumber < 0 || routeNumber >= world.getTemplate().getRouteCount()
+                || (cursor != -1 && !world.getTemplate().getRoute(routeNumber).isValidCursor(cursor))) {
+            throw new IOException("NPC " + name + " is not on a route of this map");
+        }
+        NPC npc = new NPC(name, routeNumber, world, Math.max(cursor, 0), asleep);
+        if (cursor == -1) {
+            npc.removeFromMap();
+        }
+        return npc;
+    }
 }
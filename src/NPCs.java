@@ -1,21 +1,92 @@
-import java.util.HashSet;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * This class stores the NPCs in the game,
  * and allows you to perform commands on them.
+ * <p>
+ * The NPCs are indexed by the room they are in and by their name, so
+ * finding the NPCs in a room or with a name doesn't depend on how many
+ * NPCs there are. The NPCs in a room are kept in the order the NPCs
+ * were created, so which one is found first doesn't depend on the order
+ * they arrived in.
+ * <p>
+ * When there are many NPCs, they are moved in parallel: the NPCs are
+ * split into groups that each move their cursors along their own routes
+ * on a fork-join pool, recording which NPCs reached a different room.
+ * Then those NPCs are moved into their new rooms and the index of rooms
+ * is updated in one go, in the order the NPCs were created. NPCs don't
+ * affect each other when they move, so the result is exactly the same
+ * as moving them one at a time.
  */
 public class NPCs {
-    private final HashSet<NPC> npcs;
+    private static final int PARALLEL_THRESHOLD = 4096;    // The fewest NPCs that are moved in parallel
+    private static final int GROUP_SIZE = 1024;             // The most NPCs moved by each task
+
+    private final ArrayList<NPC> npcs;                          // The NPCs, in the order they were created
+    private final IdentityHashMap<NPC, Integer> positions;      // The position of each NPC in the order they were created
+    private final HashMap<Room, ArrayList<NPC>> occupants;      // The NPCs in each room that has any
+    private final HashMap<String, NPC> byName;                  // The NPCs, by name
+    private boolean[] changedRooms;                             // Whether each NPC reached a different room in the last move, by position in npcs
 
     /**
      * Create an instance of NPCs
-     * @param npcsSet a currently empty set of all
-     *                NPCs in the game
+     * @param npcList All of the NPCs in the game, in the
+     *                order they were created
      */
-    public NPCs(HashSet<NPC> npcsSet) {
-        npcs = npcsSet;
+    public NPCs(List<NPC> npcList) {
+        npcs = new ArrayList<>(npcList);
+        positions = new IdentityHashMap<>();
+        occupants = new HashMap<>();
+        byName = new HashMap<>();
+        changedRooms = new boolean[0];
+        for (NPC npc : npcs) {
+            positions.put(npc, positions.size());
+            byName.putIfAbsent(npc.getName(), npc);
+            addOccupant(npc);
+        }
     }
 
+    /**
+     * Add an NPC to the list of NPCs in the room it is in,
+     * after the NPCs that were created before it.
+     * @param npc The NPC.
+     */
+    private void addOccupant(NPC npc) {
+        if (npc.getCurrentRoom() == null) {
+            return;
+        }
+        ArrayList<NPC> inRoom = occupants.computeIfAbsent(npc.getCurrentRoom(), room -> new ArrayList<>(1));
+        int position = positions.get(npc);
+        int i = inRoom.size();
+        while (i > 0 && positions.get(inRoom.get(i - 1)) > position) {
+            i--;
+        }
+        inRoom.add(i, npc);
+    }
+
+    /**
+     * Remove an NPC from the list of NPCs in a room.
+     * @param npc The NPC.
+     * @param room The room the NPC was in, null if it wasn't in one.
+     */
+    private void removeOccupant(NPC npc, Room room) {
+        if (room == null) {
+            return;
+        }
+        ArrayList<NPC> inRoom = occupants.get(room);
+        inRoom.remove(npc);
+        if (inRoom.isEmpty()) {
+            occupants.remove(room);
+        }
+    }
 
     /**
      * Get an NPC from it's name. If there is no NPC with the
@@ -24,27 +95,18 @@ public class NPCs {
      * @return The NPC being searched for.
      */
     public NPC getNpc(String npcName) {
-        for (NPC npc : npcs) {
-            if (npc.getName().equals(npcName)) {
-                return npc;
-            }
-        }
-        return null;
+        return byName.get(npcName);
     }
 
     /**
      * Return the NPC in a given room. If there are
-     * multiple, return a random one.
+     * multiple, return the one created first.
      * @param room The room to search for and NPC in.
      * @return The NPC in the given room.
      */
     public NPC npcInRoom(Room room) {
-        for (NPC npc : npcs) {
-            if (npc.getCurrentRoom() == room) {
-                return npc;
-            }
-        }
-        return null;
+        ArrayList<NPC> inRoom = occupants.get(room);
+        return inRoom == null ? null : inRoom.get(0);
     }
 
     /**
@@ -52,8 +114,11 @@ public class NPCs {
      * @param npc The NPC to remove.
      */
     public void removeNpc(NPC npc) {
+        removeOccupant(npc, npc.getCurrentRoom());
         npc.removeFromMap();
-        npcs.remove(npc);
+        if (npcs.remove(npc) && byName.get(npc.getName()) == npc) {
+            byName.remove(npc.getName());
+        }
     }
 
     /**
@@ -62,20 +127,128 @@ public class NPCs {
      * @return Whether or not the room contains an NPC.
      */
     public boolean isNpcInRoom(Room room) {
+        return occupants.containsKey(room);
+    }
+
+    /**
+     * Move all of the NPCs to the next room in their route. If there
+     * are many NPCs they are moved in parallel on the common pool.
+     */
+    public void moveNpcs() {
+        if (npcs.size() < PARALLEL_THRESHOLD) {
+            moveNpcsSerially();
+        } else {
+            moveNpcs(ForkJoinPool.commonPool());
+        }
+    }
+
+    /**
+     * Move all of the NPCs to the next room in their route one at a
+     * time, in the order they were created, however many there are.
+     */
+    public void moveNpcsSerially() {
         for (NPC npc : npcs) {
-            if (npc.getCurrentRoom() == room) {
-                return true;
+            Room before = npc.getCurrentRoom();
+            npc.moveAlongRoute();
+            if (npc.getCurrentRoom() != before) {
+                removeOccupant(npc, before);
+                addOccupant(npc);
             }
         }
-        return false;
     }
 
     /**
-     * Move all of the NPCs to the next room in their route.
+     * Move all of the NPCs to the next room in their route, splitting
+     * them into groups whose cursors are moved in parallel on a given
+     * pool, and then moving the NPCs that reached a different room and
+     * updating the index of rooms, in the order the NPCs were created.
+     * @param pool The pool the groups are moved on.
      */
-    public void moveNpcs() {
+    public void moveNpcs(ForkJoinPool pool) {
+        int count = npcs.size();
+        if (changedRooms.length < count) {
+            changedRooms = new boolean[count];
+        }
+        pool.invoke(new MoveTask(0, count));
+
+        for (int i = 0; i < count; i++) {
+            if (changedRooms[i]) {
+                NPC npc = npcs.get(i);
+                Room before = npc.getCurrentRoom();
+                npc.enterRouteRoom();
+                removeOccupant(npc, before);
+                addOccupant(npc);
+                changedRooms[i] = false;
+            }
+        }
+    }
+
+    /**
+     * This class moves the cursors of a group of NPCs along their
+     * routes, recording which NPCs reached a different room. Large
+     * groups are split in half and moved in parallel.
+     */
+    private class MoveTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int start;    // The position of the first NPC in the group
+        private final int end;      // The position after the last NPC in the group
+
+        /**
+         * Create a task that moves a group of NPCs.
+         * @param start The position of the first NPC in the group.
+         * @param end The position after the last NPC in the group.
+         */
+        MoveTask(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Move the group of NPCs, or split it in half
+         * if it's too large and move each half.
+         */
+        @Override
+        protected void compute() {
+            if (end - start <= GROUP_SIZE) {
+                for (int i = start; i < end; i++) {
+                    changedRooms[i] = npcs.get(i).advanceCursor();
+                }
+            } else {
+                int middle = (start + end) >>> 1;
+                invokeAll(new MoveTask(start, middle), new MoveTask(middle, end));
+            }
+        }
+    }
+
+    /**
+     * Write all of the NPCs to a saved game, in the order they were
+     * created, so the restored NPCs are found in the same order.
+     * @param out The stream to write to.
+     * @throws IOException If the NPCs could not be written.
+     */
+    public void writeState(DataOutputStream out) throws IOException {
+        out.writeInt(npcs.size());
         for (NPC npc : npcs) {
-            npc.moveAlongRoute();
+            npc.write(out);
+        }
+    }
+
+    /**
+     * Read the NPCs from a saved game.
+     * @param in The stream to read from.
+     * @param world The rooms of the game, by id.
+     * @return The NPCs.
+     * @throws IOException If the NPCs could not be read.
+     */
+    public static NPCs readState(DataInputStream in, RoomRegistry world) throws IOException {
+        ArrayList<NPC> npcList = new ArrayList<>();
+        int npcCount = in.readInt();
+        if (npcCount < 0) {
+            throw new IOException("Bad NPC count " + npcCount);
+        }
+        for (int i = 0; i < npcCount; i++) {
+            npcList.add(NPC.read(in, world));
         }
+        return new NPCs(npcList);
     }
 }
@@ -0,0 +1,124 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class measures how long it takes to move every NPC one step
+ * along its route, for towers with more and more NPCs. For each number
+ * of NPCs it first moves them one at a time, with the serial loop used
+ * for small numbers of NPCs, and then on pools with more and more
+ * threads. It prints a line for each, with the time taken, how many
+ * times faster than the serial loop it was, and whether the NPCs ended
+ * up in exactly the same rooms as with the serial loop.
+ * <p>
+ * Every room of the tower is created before the NPCs are moved, and
+ * the moves are warmed up on the same rooms, so only the moves
+ * themselves are timed.
+ */
+public class NpcTickBenchmark {
+    private static final int ROOMS_PER_NPC = 10;        // The number of rooms for each NPC
+    private static final int FLOORS = 10;               // The number of floors of each tower
+    private static final int ROUTE_LENGTH = 200;        // The number of rooms in each NPC's route
+    private static final int TICKS = 100;               // The number of moves timed for each line
+
+    /**
+     * Run the benchmark, printing the results for each number of NPCs.
+     * @param args The power of ten of the most NPCs (default 5), and the
+     *             most threads in a pool (default: the number of cores).
+     */
+    public static void main(String[] args) {
+        int maxPower = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int cores = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("%10s %8s %10s %8s %6s%n", "npcs", "threads", "tick us", "speedup", "same");
+        for (int power = 3; power <= maxPower; power++) {
+            run((int) Math.pow(10, power), cores);
+        }
+    }
+
+    /**
+     * Measure a tower with a given number of NPCs, printing the results.
+     */
+    private static void run(int npcCount, int cores) {
+        int roomsPerFloor = npcCount * ROOMS_PER_NPC / FLOORS;
+        WorldTemplate tower = new TowerGenerator(FLOORS, roomsPerFloor, npcCount, ROUTE_LENGTH, 0, npcCount)
+                .generate();
+
+        RoomRegistry serialWorld = createWorld(tower);
+        NPCs serialNpcs = tower.createNpcs(serialWorld);
+        long serialTime = time(serialNpcs, null);
+        byte[] expected = describe(serialNpcs, serialWorld);
+        System.out.printf("%10d %8s %10.1f %8.2f %6s%n", npcCount, "serial", serialTime / 1e3, 1.0, true);
+
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            RoomRegistry world = createWorld(tower);
+            NPCs npcs = tower.createNpcs(world);
+            long tickTime = time(npcs, pool);
+            pool.shutdown();
+
+            boolean same = Arrays.equals(expected, describe(npcs, world));
+            System.out.printf("%10d %8d %10.1f %8.2f %6s%n", npcCount, threads, tickTime / 1e3,
+                    (double) serialTime / tickTime, same);
+        }
+    }
+
+    /**
+     * Return the rooms of a game on a tower, with every room already created.
+     */
+    private static RoomRegistry createWorld(WorldTemplate tower) {
+        RoomRegistry world = new RoomRegistry(tower);
+        for (int id = 0; id < world.getRoomCount(); id++) {
+            world.get(id);
+        }
+        return world;
+    }
+
+    /**
+     * Move the NPCs for a number of warm-up ticks and then a number of
+     * timed ticks, one at a time if there is no pool, or on the pool.
+     * @return The average time taken by a timed tick, in nanoseconds.
+     */
+    private static long time(NPCs npcs, ForkJoinPool pool) {
+        for (int i = 0; i < TICKS; i++) {
+            tick(npcs, pool);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < TICKS; i++) {
+            tick(npcs, pool);
+        }
+        return (System.nanoTime() - start) / TICKS;
+    }
+
+    /**
+     * Move every NPC once, one at a time if there is no pool, or on the pool.
+     */
+    private static void tick(NPCs npcs, ForkJoinPool pool) {
+        if (pool == null) {
+            npcs.moveNpcsSerially();
+        } else {
+            npcs.moveNpcs(pool);
+        }
+    }
+
+    /**
+     * Return the state of the NPCs, followed by the NPC found first
+     * in each room, so the results of moving them can be compared.
+     */
+    private static byte[] describe(NPCs npcs, RoomRegistry world) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            npcs.writeState(out);
+            for (int id = 0; id < world.getRoomCount(); id++) {
+                NPC npc = npcs.npcInRoom(world.get(id));
+                out.writeUTF(npc == null ? "" : npc.getName());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
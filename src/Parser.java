@@ -1,4 +1,4 @@
-import java.util.Scanner;
+import java.io.Reader;
 
 /**
  * This class is part of the "World of Zuul" application.
@@ -17,55 +17,118 @@ import java.util.Scanner;
  * @version 2016.02.29
  */
 public class Parser {
-    private final Scanner reader;         // source of command input
+    private final Tokenizer tokenizer;    // source of command input
+    private final GameOutput out;         // where prompts are printed
+    private final CommandWords commands;  // holds all valid command words
+    private final Journal journal;        // records every line that is read
+    private boolean promptShown;          // whether the prompt for the next command has been printed
+    private boolean inputEnded;           // whether there is no more input to read
 
     /**
-     *
+     * Create a parser that reads input from a given source.
+     * @param input    The source of user input.
+     * @param out      The output prompts are printed to.
+     * @param commands The command words the parser recognises.
+     * @param journal  The journal every line read is recorded in.
      */
-    public Parser() {
-        reader = new Scanner(System.in);
+    public Parser(Reader input, GameOutput out, CommandWords commands, Journal journal) {
+        tokenizer = new Tokenizer(input);
+        this.out = out;
+        this.commands = commands;
+        this.journal = journal;
     }
 
     /**
      * Converts user input into a command, ignoring any words after the third
-     * @return The Command constructed from the user input
+     * @return The Command constructed from the user input, or null if
+     * there is no more input
      */
     public Command getCommand() {
-        String inputLine;   // will hold the full input line
-        String word1 = null;
-        String word2 = null;
-        String word3 = null;
+        Command command = getCommandUnlessIdle();
+        while (command == null && hasTimedOut()) {
+            command = getCommandUnlessIdle();
+        }
+        return command;
+    }
 
-        System.out.print("> ");     // print prompt
+    /**
+     * Converts user input into a command, unless the input's time limit
+     * is reached before the user types anything.
+     * @return The Command constructed from the user input, or null if
+     * there is no more input or the time limit was reached
+     */
+    public Command getCommandUnlessIdle() {
+        if (!promptShown) {
+            out.print("> ");     // print prompt
+            promptShown = true;
+        }
+        out.flush();         // show everything printed this turn before waiting for input
 
-        inputLine = reader.nextLine();
+        // Find up to three words on the line.
+        // note: we just ignore the rest of the input line.
+        if (!tokenizer.readLine()) {
+            inputEnded = !tokenizer.hasTimedOut();
+            return null;
+        }
+        promptShown = false;
+        journal.record(tokenizer.getLine());
+        tokenizer.split();
 
-        // Find up to two words on the line.
-        Scanner tokenizer = new Scanner(inputLine);
-        if (tokenizer.hasNext()) {
-            word1 = tokenizer.next().toLowerCase();      // get first word
-            if (tokenizer.hasNext()) {
-                word2 = tokenizer.next().toLowerCase();      // get second word
-                if (tokenizer.hasNext()) {
-                    word3 = tokenizer.next().toLowerCase();      // get third word
-                    // note: we just ignore the rest of the input line.
-                }
+        // Now check whether the first word is known. If so, create a command
+        // with the shared copy of it and its handler. If not, create a "null"
+        // command (for unknown command).
+        return commands.getCommand(tokenizer);
+    }
+
+    /**
+     * Read a whole line of user input, for when the user is
+     * asked a question rather than given a command.
+     * @return The line of input with leading and trailing whitespace removed,
+     * or an empty String if there is no more input.
+     */
+    public String readLine() {
+        out.flush();
+        while (!tokenizer.readLine()) {
+            if (!tokenizer.hasTimedOut()) {
+                inputEnded = true;
+                return "";
             }
         }
+        String line = tokenizer.getLine();
+        journal.record(line);
+        return line;
+    }
 
-        // Now check whether this word is known. If so, create a command
-        // with it. If not, create a "null" command (for unknown command).
-        if (CommandWords.isCommand(word1)) {
-            return new Command(word1, word2, word3);
-        } else {
-            return new Command(null, word2, word3);
-        }
+    /**
+     * Return whether the last command wasn't read because
+     * the input's time limit was reached.
+     * @return Whether or not reading the last command timed out.
+     */
+    public boolean hasTimedOut() {
+        return tokenizer.hasTimedOut();
+    }
+
+    /**
+     * Return whether the end of the input has been reached, such
+     * as when the user has disconnected.
+     * @return Whether or not there is no more input.
+     */
+    public boolean hasInputEnded() {
+        return inputEnded;
+    }
+
+    /**
+     * Don't print a prompt before the next command, because the
+     * user has already been shown one.
+     */
+    public void skipPrompt() {
+        promptShown = true;
     }
 
     /**
      * Print all of the command words.
      */
     public void showCommands() {
-        CommandWords.showAll();
+        commands.showAll(out);
     }
 }
@@ -1,6 +1,6 @@
-import java.util.HashSet;
-import java.util.Stack;
-import java.util.Arrays;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 
 /**
  * This class represents the player of the game,
@@ -11,8 +11,9 @@ import java.util.Arrays;
 public class Player {
     private Room currentRoom;           // The room the player is currently in
     private final Inventory inventory;        // The player's inventory
-    private final HashSet<String> spellbook;  // The names of the spells the player can use
-    private final Stack<Room> previousRooms;  // The previous rooms the player has been in
+    private long spellbook;             // The spells the player can use, one bit for each spell by ordinal
+    private final RoomHistory previousRooms;  // The previous rooms the player has been in, most recent last
+    private final RoomRegistry world;         // The rooms of the game, by id
     private String name;          // The name of the player
     private int balance;                // The coin balance of the player
 
@@ -20,12 +21,15 @@ public class Player {
      * Create a new instance of the player, their name
      * initially not set.
      * @param inventorySize The size of the player's inventory
-     * @param spellNames An array contain the names of the spells the player can use
+     * @param spellbook The spells the player can use, one bit for each spell by ordinal
+     * @param world The rooms of the game, by id
+     * @param historyDepth The most previous rooms the player can go back through
      */
-    Player(int inventorySize, String[] spellNames) {
+    Player(int inventorySize, long spellbook, RoomRegistry world, int historyDepth) {
         inventory = new Inventory(inventorySize);
-        spellbook = new HashSet<>(Arrays.asList(spellNames));
-        previousRooms = new Stack<>();
+        this.spellbook = spellbook;
+        this.world = world;
+        previousRooms = new RoomHistory(historyDepth);
         name = "";
         balance = 0;
         setupInventory();
@@ -65,6 +69,14 @@ public class Player {
         return name;
     }
 
+    /**
+     * Return the number of items in the player's inventory.
+     * @return The number of items in the player's inventory.
+     */
+    public int getItemCount() {
+        return inventory.getItemCount();
+    }
+
     /**
      * Get the room the player is currently in.
      * @return The room the player is currently in.
@@ -84,36 +96,47 @@ public class Player {
 
     /**
      * Get the room the player was in before this one.
-     * @return The room the player was in.
+     * @return The room the player was in, or null if there isn't one.
      */
     public Room getPreviousRoom() {
-        return previousRooms.peek();
+        int previousRoom = previousRooms.peek();
+        return previousRoom < 0 ? null : world.get(previousRoom);
+    }
+
+    /**
+     * Add a spell to the player's spellbook.
+     * @param spell The spell to add.
+     */
+    public void addSpell(Spell spell) {
+        spellbook |= spell.getBit();
     }
 
     /**
      * Remove a spell from the player's spellbook.
-     * @param spellName The name of the spell to remove.
+     * @param spell The spell to remove.
      */
-    public void removeSpell(String spellName) {
-        spellbook.remove(spellName);
+    public void removeSpell(Spell spell) {
+        spellbook &= ~spell.getBit();
     }
 
     /**
-     * Print all the spells the player can currently use.
+     * Print all the spells the player can currently use,
+     * in the order they were registered.
+     * @param out The output to print to.
      */
-    public void printAvailableSpells() {
-        for (String spellName : spellbook) {
-            System.out.println(spellName);
+    public void printAvailableSpells(GameOutput out) {
+        for (long spells = spellbook; spells != 0; spells &= spells - 1) {
+            out.println(Spells.getSpell(Long.numberOfTrailingZeros(spells)).getName());
         }
     }
 
     /**
-     * Check if the player's spellbook has a spell with a given name.
-     * @param spellName The name of the spell.
+     * Check if the player's spellbook has a spell.
+     * @param spell The spell.
      * @return Whether or not the player's spellbook contains it.
      */
-    public boolean hasSpell(String spellName) {
-        return spellbook.contains(spellName);
+    public boolean hasSpell(Spell spell) {
+        return (spellbook & spell.getBit()) != 0;
     }
 
     /**
@@ -135,9 +158,10 @@ public class Player {
     /**
      * Print the contents of the player's inventory along with
      * the wights of each item.
+     * @param out The output to print to.
      */
-    public void showInventory() {
-        inventory.showItemsAndWeights();
+    public void showInventory(GameOutput out) {
+        inventory.showItemsAndWeights(out);
     }
 
     /**
@@ -152,11 +176,12 @@ public class Player {
 
     /**
      * Set the current room of the player after adding
-     * the room the player was just in to previousRooms.
+     * the room the player was just in to previousRooms,
+     * forgetting the oldest one if it's full.
      * @param room The room the player moves to.
      */
     public void walkToRoom(Room room) {
-        previousRooms.push(currentRoom);
+        previousRooms.push(currentRoom.getId());
         currentRoom = room;
     }
 
@@ -185,6 +210,24 @@ public class Player {
         inventory.removeItem(itemName);
     }
 
+    /**
+     * Remove a number of items with a given name from the player's inventory.
+     * @param itemName The name of the items to remove.
+     * @param count The number of items to remove.
+     * @return The number of items removed.
+     */
+    public int removeItems(String itemName, int count) {
+        return inventory.removeItems(Symbols.lookup(itemName), count);
+    }
+
+    /**
+     * Remove an item with a given name from the player's inventory
+     * @param itemSymbol The symbol of the name of the item to remove
+     */
+    public void removeItem(int itemSymbol) {
+        inventory.removeItems(itemSymbol, 1);
+    }
+
     /**
      * Return an item with a give name in the inventory.
      * @param itemName The name of the item to return.
@@ -194,6 +237,15 @@ public class Player {
         return inventory.getItem(itemName);
     }
 
+    /**
+     * Return an item with a give name in the inventory.
+     * @param itemSymbol The symbol of the name of the item to return.
+     * @return The item being searched for.
+     */
+    public Item getItem(int itemSymbol) {
+        return inventory.getItem(itemSymbol);
+    }
+
     /**
      * Return whether or not the player's inventory
      * contains and item with a given name.
@@ -204,19 +256,30 @@ public class Player {
         return inventory.hasItem(itemName);
     }
 
+    /**
+     * Return whether or not the player's inventory
+     * contains and item with a given name.
+     * @param itemSymbol The symbol of the name of the item being searched for.
+     * @return Whether or not the player's inventory contains the item.
+     */
+    public boolean hasItem(int itemSymbol) {
+        return inventory.hasItem(itemSymbol);
+    }
+
     /**
      * Go to the room you were in before this one.
      * If used again, travel backwards along the path
-     * taken throughout this game. If previousRooms is
-     * empty, return false. Otherwise return true.
+     * taken throughout this game, as far back as the history
+     * goes. If previousRooms is empty, return false. Otherwise
+     * return true.
      *
      * @return Whether or not the player successfully moved to the previous room
      */
     public boolean goBack() {
-        if (previousRooms.empty()) {
+        if (previousRooms.isEmpty()) {
             return false;
         } else {
-            currentRoom = previousRooms.pop();
+            currentRoom = world.get(previousRooms.pop());
             return true;
         }
     }
@@ -228,4 +291,52 @@ public class Player {
         balance++;
     }
 
+    /**
+     * Write the player to a saved game. Rooms are written as their ids,
+     * and the spellbook as the names of its spells, since spells may
+     * be given different ordinals the next time the program runs.
+     * @param out The stream to write to.
+     * @throws IOException If the player could not be written.
+     */
+    public void writeState(DataOutputStream out) throws IOException {
+        out.writeUTF(name);
+        out.writeInt(balance);
+        out.writeInt(currentRoom.getId());
+        previousRooms.write(out);
+
+        out.writeByte(Long.bitCount(spellbook));
+        for (long spells = spellbook; spells != 0; spells &= spells - 1) {
+            out.writeUTF(Spells.getSpell(Long.numberOfTrailingZeros(spells)).getName());
+        }
+        inventory.writeState(out);
+    }
+
+    /**
+     * Replace the state of the player with that in a saved game.
+     * @param in The stream to read from.
+     * @param world The rooms of the game, by id.
+     * @throws IOException If the player could not be read.
+     */
+    public void readState(DataInputStream in, RoomRegistry world) throws IOException {
+        name = in.readUTF();
+        balance = in.readInt();
+        currentRoom = world.get(world.checkId(in.readInt()));
+        previousRooms.read(in, world.getRoomCount());
+
+        spellbook = 0;
+        int spellCount = in.readByte();
+        if (spellCount < 0) {
+            throw new IOException("Invalid spell count " + spellCount);
+        }
+        for (int i = 0; i < spellCount; i++) {
+            String spellName = in.readUTF();
+            Spell spell = Spells.getSpell(spellName);
+            if (spell == null) {
+                throw new IOException("Unknown spell " + spellName);
+            }
+            addSpell(spell);
+        }
+        inventory.readState(in);
+    }
+
 }
@@ -1,5 +1,6 @@
-import java.util.Set;
-import java.util.HashMap;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 
 /**
  * Class Room - a room in an adventure game.
@@ -10,43 +11,57 @@ import java.util.HashMap;
  * A "Room" represents one location in the scenery of the game.  It is
  * connected to other rooms via exits.  For each existing exit, the room
  * stores a reference to the neighboring room.
+ * <p>
+ * The parts of a room that are the same in every game are kept in a
+ * shared RoomTemplate. A room starts off using the template's exits and
+ * items, and only makes its own copy of them when they change.
+ * <p>
+ * A room's description is worked out the first time it's needed and
+ * kept until the room's exits or lighting change. The descriptions are
+ * kept by the template, one for each set of exits, so rooms in
+ * different games that have the same exits share the same description.
  *
  * @author Michael Kölling and David J. Barnes
  * @version 2016.02.29
  */
 
 public class Room {
-    private final String roomName;
-    private final String description;
-    private final HashMap<String, Room> exits;        // stores exits of this room.
-    private final HashMap<String, Item> items;        // stores items in each room
+    private final RoomTemplate template;        // the parts of the room that are the same in every game
+    private final RoomRegistry world;           // the rooms of this game, by id
+    private Room[] exits;                       // stores exits of this room by direction, null until they change
+    private RoomItems items;                    // stores items in each room, null until they change
     private boolean dark;
     private boolean entered;
+    private String description;                 // the room's description, null until needed or after it changes
 
     /**
-     * Create a room described "description". Initially, it has
-     * no exits. "description" is something like "a kitchen" or
-     * "an open court yard". Set whether it is dark or not and
-     * initially it contains no items. And it's name.
+     * Create a room for a game from a template. Initially it has the
+     * exits and items of the template, which are only copied into the
+     * room if they change. It's not yet been entered.
      *
-     * @param roomName The name of the room.
-     * @param description The room's description.
-     * @param dark        Whether the room is dark or not.
+     * @param template The template of the room.
+     * @param world    The rooms of the game, by id, which the
+     *                 template's exits refer to.
      */
-    public Room(String roomName, String description, boolean dark) {
-        this.roomName = roomName;
-        this.description = description;
-        this.dark = dark;
+    public Room(RoomTemplate template, RoomRegistry world) {
+        this.template = template;
+        this.world = world;
+        dark = template.getDark();
         entered = false;
-        exits = new HashMap<>();
-        items = new HashMap<>();
     }
 
     /**
      * @return The name of the room.
      */
     public String getName() {
-        return roomName;
+        return template.getName();
+    }
+
+    /**
+     * @return The id of the room in its world.
+     */
+    public int getId() {
+        return template.getId();
     }
 
     /**
@@ -70,23 +85,65 @@ public class Room {
      * @param direction The direction of the exit.
      * @param neighbor  The room to which the exit leads.
      */
-    public void setExit(String direction, Room neighbor) {
-        exits.put(direction, neighbor);
+    public void setExit(Direction direction, Room neighbor) {
+        Room before = getExit(direction);
+        if (before != neighbor) {
+            copyExits()[direction.ordinal()] = neighbor;
+            description = null;
+            world.exitChanged(this, direction, before, neighbor);
+        }
     }
 
     /**
+     * Remove an exit from this room.
+     * @param direction The direction the room other room is
+     */
+    public void removeExit(Direction direction) {
+        Room before = getExit(direction);
+        if (before != null) {
+            copyExits()[direction.ordinal()] = null;
+            description = null;
+            world.exitChanged(this, direction, before, null);
+        }
+    }
+
+    /**
+     * Return this room's own exits, copying them from
+     * the template first if they haven't changed before.
      *
+     * @return The exits of this room.
      */
-    public Set<String> getPossibleExits() {
-        return exits.keySet();
+    private Room[] copyExits() {
+        if (exits == null) {
+            Room[] copy = new Room[Direction.COUNT];
+            for (int i = 0; i < Direction.COUNT; i++) {
+                copy[i] = getExit(Direction.fromOrdinal(i));
+            }
+            exits = copy;
+        }
+        return exits;
     }
 
     /**
-     * Remove an exit from this room.
-     * @param direction The direction the room other room is
+     * Return this room's own items, copying them from
+     * the template first if they haven't changed before.
+     *
+     * @return The items of this room.
+     */
+    private RoomItems copyItems() {
+        if (items == null) {
+            items = template.getItems().copy();
+        }
+        return items;
+    }
+
+    /**
+     * Return the items in this room.
+     *
+     * @return The items in this room.
      */
-    public void removeExit(String direction) {
-        exits.remove(direction);
+    private RoomItems getItems() {
+        return items == null ? template.getItems() : items;
     }
 
     /**
@@ -96,22 +153,26 @@ public class Room {
      * @return A String describing the room
      */
     public String getDescription() {
-        return "You are " + (dark ? "in a dark room" : this.description + ".\n" + getExitString());
+        if (description == null) {
+            description = dark ? RoomTemplate.DARK_DESCRIPTION : template.getDescription(getExitMask());
+        }
+        return description;
     }
 
     /**
-     * Return a string describing the room's exits, for example
-     * "Exits: north west".
+     * Return which directions the room has exits in, as one
+     * bit for each direction, by the direction's ordinal.
      *
-     * @return Details of the room's exits.
+     * @return The directions of the room's exits.
      */
-    private String getExitString() {
-        StringBuilder returnString = new StringBuilder("Exits:");
-        Set<String> keys = exits.keySet();
-        for (String exit : keys) {
-            returnString.append(" ").append(exit);
+    private int getExitMask() {
+        int mask = 0;
+        for (int i = 0; i < Direction.COUNT; i++) {
+            if (getExit(Direction.fromOrdinal(i)) != null) {
+                mask |= 1 << i;
+            }
         }
-        return returnString.toString();
+        return mask;
     }
 
     /**
@@ -121,8 +182,27 @@ public class Room {
      * @param direction The exit's direction.
      * @return The room in the given direction.
      */
-    public Room getExit(String direction) {
-        return exits.get(direction);
+    public Room getExit(Direction direction) {
+        if (exits != null) {
+            return exits[direction.ordinal()];
+        }
+        int neighbor = template.getExit(direction);
+        return neighbor < 0 ? null : world.get(neighbor);
+    }
+
+    /**
+     * Return the id of the room an exit leads to, without
+     * creating the room if it hasn't been needed before.
+     *
+     * @param direction The exit's direction.
+     * @return The id of the room in the given direction, or -1 if there is none.
+     */
+    public int getExitId(Direction direction) {
+        if (exits != null) {
+            Room neighbor = exits[direction.ordinal()];
+            return neighbor == null ? -1 : neighbor.getId();
+        }
+        return template.getExit(direction);
     }
 
     /**
@@ -138,7 +218,10 @@ public class Room {
      * Make the room bright (so not dark).
      */
     public void makeBright() {
-        dark = false;
+        if (dark) {
+            dark = false;
+            description = null;
+        }
     }
 
     /**
@@ -147,56 +230,72 @@ public class Room {
      * @param item The item to be added.
      */
     public void addItem(Item item) {
-        items.put(item.getName(), item);
+        copyItems().add(item);
     }
 
     /**
-     * Remove an item from the room.
+     * Remove one item with a given name from the room.
      *
-     * @param item The item to be removed.
+     * @param itemName The name of the item to be removed.
      */
-    public void removeItem(Item item) {
-        items.remove(item.getName());
+    public void removeItem(String itemName) {
+        removeItem(Symbols.lookup(itemName));
     }
 
     /**
-     * Print the names of the items in the room that can
-     * be picked up.
+     * Remove one item with a given name from the room.
+     *
+     * @param itemSymbol The symbol of the name of the item to be removed.
      */
-    public void showItems() {
-        Boolean noItems = true;
-        StringBuilder printString = new StringBuilder("Items:");
-
-        for (Item item : items.values()) {
-            if (item.getObtainable()) {
-                printString.append("\n").append(item.getName());
-            }
-            noItems = false;
+    public void removeItem(int itemSymbol) {
+        if (containsItem(itemSymbol)) {
+            copyItems().remove(itemSymbol);
         }
+    }
 
-        if (!noItems) {
-            System.out.println(printString);
+    /**
+     * Print the names of the items in the room that can
+     * be picked up. The heading is printed as long as
+     * the room has anything in it.
+     *
+     * @param out The output to print to.
+     */
+    public void showItems(GameOutput out) {
+        if (!isEmpty()) {
+            out.println(listItems("Items:", getItems().getObtainable()));
         }
     }
 
     /**
      * Print the names of the items in the room that can't
-     * be picked up.
+     * be picked up. The heading is printed as long as
+     * the room has anything in it.
+     *
+     * @param out The output to print to.
      */
-    public void showObjects() {
-        Boolean noObjects = true;
-        StringBuilder printString = new StringBuilder("Objects:");
-
-        for (Item item : items.values()) {
-            if (!item.getObtainable()) {
-                printString.append("\n").append(item.getName());
-            }
-            noObjects = false;
+    public void showObjects(GameOutput out) {
+        if (!isEmpty()) {
+            out.println(listItems("Objects:", getItems().getObjects()));
         }
+    }
 
-        if (!noObjects) {
-            System.out.println(printString);
+    /**
+     * Return a heading followed by the names of some items, one on
+     * each line, with how many there are if there's more than one.
+     *
+     * @param heading The heading.
+     * @param items   The items.
+     * @return The list of items.
+     */
+    private static String listItems(String heading, RoomItems.View items) {
+        StringBuilder printString = new StringBuilder(heading);
+        for (int i = 0; i < items.size(); i++) {
+            printString.append("\n").append(items.getItem(i).getName());
+            if (items.getCount(i) > 1) {
+                printString.append(" x").append(items.getCount(i));
+            }
         }
+        return printString.toString();
     }
 
     /**
@@ -206,7 +305,17 @@ public class Room {
      * @return Whether or not the room contains the item.
      */
     public boolean containsItem(String itemName) {
-        return items.containsKey(itemName);
+        return containsItem(Symbols.lookup(itemName));
+    }
+
+    /**
+     * Return true if the room contains a given item.
+     *
+     * @param itemSymbol The symbol of the name of the item you're checking for.
+     * @return Whether or not the room contains the item.
+     */
+    public boolean containsItem(int itemSymbol) {
+        return getItems().getCount(itemSymbol) > 0;
     }
 
     /**
@@ -217,7 +326,18 @@ public class Room {
      * @return The item being searched for.
      */
     public Item getItem(String itemName) {
-        return items.get(itemName);
+        return getItem(Symbols.lookup(itemName));
+    }
+
+    /**
+     * Returns the item specified. If it isn't in the
+     * room, return null.
+     *
+     * @param itemSymbol The symbol of the item's name.
+     * @return The item being searched for.
+     */
+    public Item getItem(int itemSymbol) {
+        return getItems().get(itemSymbol);
     }
 
     /**
@@ -225,7 +345,61 @@ public class Room {
      * @return A boolean that's true if the room has no items.
      */
     public boolean isEmpty() {
-        return items.isEmpty();
+        return getItems().isEmpty();
     }
-}
 
+    /**
+     * Return whether the room is any different from how it
+     * was at the start of the game.
+     *
+     * @return Whether or not the room has changed.
+     */
+    public boolean hasChanged() {
+        return dark != template.getDark() || entered || exits != null || items != null;
+    }
+
+    /**
+     * Write the parts of the room that have changed during the game to
+     * a saved game. Exits and items are only written if they differ
+     * from the template's, and rooms are written as their ids.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If the room could not be written.
+     */
+    public void writeState(DataOutputStream out) throws IOException {
+        out.writeByte((dark ? 1 : 0) | (entered ? 2 : 0) | (exits != null ? 4 : 0) | (items != null ? 8 : 0));
+        if (exits != null) {
+            for (Room exit : exits) {
+                out.writeInt(exit == null ? -1 : exit.getId());
+            }
+        }
+        if (items != null) {
+            items.write(out);
+        }
+    }
+
+    /**
+     * Replace the state of the room with that in a saved game.
+     *
+     * @param in The stream to read from.
+     * @throws IOException If the room could not be read.
+     */
+    public void readState(DataInputStream in) throws IOException {
+        int flags = in.readByte();
+        dark = (flags & 1) != 0;
+        entered = (flags & 2) != 0;
+        description = null;
+
+        exits = null;
+        if ((flags & 4) != 0) {
+            exits = new Room[Direction.COUNT];
+            for (int i = 0; i < Direction.COUNT; i++) {
+                int neighbor = in.readInt();
+                exits[i] = neighbor < 0 ? null : world.get(world.checkId(neighbor));
+            }
+        }
+
+        items = (flags & 8) != 0 ? RoomItems.read(in) : null;
+        world.exitsReplaced(this);
+    }
+}
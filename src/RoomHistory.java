@@ -0,0 +1,128 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * This class holds the rooms a player has walked out of, most recent
+ * last, so they can walk back through them. Rooms are kept as their
+ * ids in a fixed size ring: once it's full, each room added replaces
+ * the oldest one, so the history never takes more memory however long
+ * the game goes on, and adding or taking a room back never copies any.
+ */
+public class RoomHistory {
+    private final int[] rooms;      // The ids of the rooms, in a ring
+    private int newest;             // The position in rooms of the most recent room
+    private int size;               // The number of rooms held
+
+    /**
+     * Create an empty history.
+     * @param depth The most rooms the history holds.
+     * @throws IllegalArgumentException If the depth is less than 1.
+     */
+    public RoomHistory(int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("A room history must hold at least one room");
+        }
+        rooms = new int[depth];
+        newest = depth - 1;
+        size = 0;
+    }
+
+    /**
+     * Add a room to the end of the history, forgetting
+     * the oldest room if the history is full.
+     * @param roomId The id of the room.
+     */
+    public void push(int roomId) {
+        newest = newest + 1 == rooms.length ? 0 : newest + 1;
+        rooms[newest] = roomId;
+        if (size < rooms.length) {
+            size++;
+        }
+    }
+
+    /**
+     * Take the most recent room off the end of the history.
+     * @return The id of the room, or -1 if the history is empty.
+     */
+    public int pop() {
+        if (size == 0) {
+            return -1;
+        }
+        int roomId = rooms[newest];
+        newest = newest == 0 ? rooms.length - 1 : newest - 1;
+        size--;
+        return roomId;
+    }
+
+    /**
+     * Return the most recent room, leaving it in the history.
+     * @return The id of the room, or -1 if the history is empty.
+     */
+    public int peek() {
+        return size == 0 ? -1 : rooms[newest];
+    }
+
+    /**
+     * @return Whether or not the history is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return The number of rooms in the history.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The most rooms the history holds.
+     */
+    public int getDepth() {
+        return rooms.length;
+    }
+
+    /**
+     * Forget every room in the history.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Write the history to a saved game, oldest room first.
+     * @param out The stream to write to.
+     * @throws IOException If the history could not be written.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        int position = newest - size + 1;
+        for (int i = 0; i < size; i++, position++) {
+            out.writeInt(rooms[position < 0 ? position + rooms.length : position]);
+        }
+    }
+
+    /**
+     * Replace the history with one in a saved game. If the saved history
+     * holds more rooms than this one can, only the most recent are kept.
+     * @param in The stream to read from.
+     * @param roomCount The number of rooms in the world, which every id must be below.
+     * @throws IOException If the history could not be read.
+     */
+    public void read(DataInputStream in, int roomCount) throws IOException {
+        clear();
+        int savedSize = in.readInt();
+        if (savedSize < 0) {
+            throw new IOException("Invalid room history size " + savedSize);
+        }
+        for (int i = 0; i < savedSize; i++) {
+            int roomId = in.readInt();
+            if (roomId < 0 || roomId >= roomCount) {
+                throw new IOException("Unknown room " + roomId + " in room history");
+            }
+            push(roomId);
+        }
+    }
+}
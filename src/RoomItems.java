@@ -0,0 +1,289 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * This class holds the items in a room, as a count of each type of item
+ * rather than one object per item, so a room with a thousand gold coins
+ * holds a single gold coin Item and the number 1000. Items with the same
+ * name are the same type of item, and are found by the symbol of their
+ * name.
+ * <p>
+ * Items that can be picked up and objects that can't are kept apart, in
+ * the order they were first placed in the room, so each can be listed
+ * without looking at the other.
+ */
+public class RoomItems {
+    private static final RoomItems EMPTY = new RoomItems();     // Shared by every room template without items
+
+    private final View obtainable;      // The types of item that can be picked up
+    private final View objects;         // The types of item that can't be picked up
+
+    /**
+     * Create an empty set of items.
+     */
+    public RoomItems() {
+        obtainable = new View();
+        objects = new View();
+    }
+
+    /**
+     * Return a set of items with nothing in it, which must not be changed.
+     * @return The empty set of items.
+     */
+    public static RoomItems empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Return a copy of these items, which can be changed
+     * without changing these ones.
+     * @return The copy.
+     */
+    public RoomItems copy() {
+        RoomItems copy = new RoomItems();
+        copy.obtainable.copyFrom(obtainable);
+        copy.objects.copyFrom(objects);
+        return copy;
+    }
+
+    /**
+     * Return the view holding the items of the same kind as an item.
+     */
+    private View getView(Item item) {
+        return item.getObtainable() ? obtainable : objects;
+    }
+
+    /**
+     * Add one of an item.
+     * @param item The item.
+     */
+    public void add(Item item) {
+        add(item, 1);
+    }
+
+    /**
+     * Add a number of copies of an item. If there are already items
+     * with the same name, their count goes up.
+     * @param item The item.
+     * @param count The number of copies to add.
+     */
+    public void add(Item item, int count) {
+        View view = getView(item);
+        int index = view.indexOf(item.getSymbol());
+        if (index < 0) {
+            index = view.append(item);
+        }
+        view.counts[index] += count;
+    }
+
+    /**
+     * Remove one item with a given name.
+     * @param symbol The symbol of the item's name.
+     * @return Whether or not there was an item to remove.
+     */
+    public boolean remove(int symbol) {
+        return obtainable.removeOne(symbol) || objects.removeOne(symbol);
+    }
+
+    /**
+     * Return the type of item with a given name.
+     * @param symbol The symbol of the item's name.
+     * @return The item, or null if there are none with that name.
+     */
+    public Item get(int symbol) {
+        int index = obtainable.indexOf(symbol);
+        if (index >= 0) {
+            return obtainable.items[index];
+        }
+        index = objects.indexOf(symbol);
+        return index < 0 ? null : objects.items[index];
+    }
+
+    /**
+     * Return how many items there are with a given name.
+     * @param symbol The symbol of the item's name.
+     * @return The number of items with that name.
+     */
+    public int getCount(int symbol) {
+        int index = obtainable.indexOf(symbol);
+        if (index >= 0) {
+            return obtainable.counts[index];
+        }
+        index = objects.indexOf(symbol);
+        return index < 0 ? 0 : objects.counts[index];
+    }
+
+    /**
+     * @return Whether or not there are no items.
+     */
+    public boolean isEmpty() {
+        return obtainable.size == 0 && objects.size == 0;
+    }
+
+    /**
+     * @return The types of item that can be picked up, and how many there are of each.
+     */
+    public View getObtainable() {
+        return obtainable;
+    }
+
+    /**
+     * @return The types of item that can't be picked up, and how many there are of each.
+     */
+    public View getObjects() {
+        return objects;
+    }
+
+    /**
+     * Write the items to a saved game or world image.
+     * @param out The stream to write to.
+     * @throws IOException If the items could not be written.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        obtainable.write(out);
+        objects.write(out);
+    }
+
+    /**
+     * Read items that were written with write.
+     * @param in The stream to read from.
+     * @return The items.
+     * @throws IOException If the items could not be read.
+     */
+    public static RoomItems read(DataInputStream in) throws IOException {
+        RoomItems items = new RoomItems();
+        items.obtainable.read(in);
+        items.objects.read(in);
+        return items;
+    }
+
+    /**
+     * This class lists one kind of item in a room, either those that can
+     * be picked up or those that can't, along with how many there are of
+     * each type. Types are only compared by the symbols of their names,
+     * and there are few of them in a room, so they're searched in turn.
+     */
+    public static class View {
+        private Item[] items;       // The types of item, in the order they were first placed
+        private int[] counts;       // The number of items of each type
+        private int size;           // The number of types of item
+
+        /**
+         * Create an empty list of items.
+         */
+        private View() {
+            items = new Item[0];
+            counts = new int[0];
+            size = 0;
+        }
+
+        /**
+         * @return The number of types of item.
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Return a type of item.
+         * @param index The position of the type, starting at 0.
+         * @return The item.
+         */
+        public Item getItem(int index) {
+            return items[index];
+        }
+
+        /**
+         * Return how many there are of a type of item.
+         * @param index The position of the type, starting at 0.
+         * @return The number of items of that type.
+         */
+        public int getCount(int index) {
+            return counts[index];
+        }
+
+        /**
+         * Return the position of the type of item with a given name.
+         */
+        private int indexOf(int symbol) {
+            for (int i = 0; i < size; i++) {
+                if (items[i].getSymbol() == symbol) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Add a new type of item, with none of it yet.
+         * @return The position of the type.
+         */
+        private int append(Item item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, Math.max(2, size * 2));
+                counts = Arrays.copyOf(counts, items.length);
+            }
+            items[size] = item;
+            counts[size] = 0;
+            return size++;
+        }
+
+        /**
+         * Remove one item with a given name, and its type
+         * if there are none of it left.
+         */
+        private boolean removeOne(int symbol) {
+            int index = indexOf(symbol);
+            if (index < 0) {
+                return false;
+            }
+            counts[index]--;
+            if (counts[index] == 0) {
+                System.arraycopy(items, index + 1, items, index, size - index - 1);
+                System.arraycopy(counts, index + 1, counts, index, size - index - 1);
+                size--;
+                items[size] = null;
+            }
+            return true;
+        }
+
+        /**
+         * Replace this list with a copy of another.
+         */
+        private void copyFrom(View other) {
+            items = Arrays.copyOf(other.items, other.size);
+            counts = Arrays.copyOf(other.counts, other.size);
+            size = other.size;
+        }
+
+        /**
+         * Write the list to a stream.
+         */
+        private void write(DataOutputStream out) throws IOException {
+            out.writeShort(size);
+            for (int i = 0; i < size; i++) {
+                items[i].write(out);
+                out.writeInt(counts[i]);
+            }
+        }
+
+        /**
+         * Replace this list with one read from a stream.
+         */
+        private void read(DataInputStream in) throws IOException {
+            int typeCount = in.readShort();
+            if (typeCount < 0) {
+                throw new IOException("Invalid item type count " + typeCount);
+            }
+            items = new Item[typeCount];
+            counts = new int[typeCount];
+            for (int i = 0; i < typeCount; i++) {
+                items[i] = Item.read(in);
+                counts[i] = in.readInt();
+            }
+            size = typeCount;
+        }
+    }
+}
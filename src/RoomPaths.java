@@ -0,0 +1,270 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * This class finds the shortest way between the rooms of a game,
+ * following their exits as they are now, including the floor each
+ * elevator is on.
+ * <p>
+ * For each room that paths lead to, a table is worked out the first
+ * time it's needed, holding the direction of the first step towards it
+ * from every other room, so each step of a path is found without
+ * searching. Only the tables of the last few rooms asked about are
+ * kept. While a game's exits are the same as its template's, its
+ * tables are shared with every other such game through the template.
+ * <p>
+ * When an exit changes, only the tables the change makes wrong are
+ * thrown away: those whose paths used the exit that went, and those
+ * that the new exit makes a shorter path for. The rest are still
+ * shortest paths, and are kept.
+ */
+public class RoomPaths {
+    private static final int TABLES_KEPT = 8;   // The most tables kept by each game
+
+    private final RoomRegistry world;           // The rooms of the game, by id
+    private final WorldTemplate template;       // The template the rooms are created from
+    private final BitSet changedRooms;          // The ids of the rooms whose exits differ from the template's
+    private final LinkedHashMap<Integer, Table> tables;     // The tables kept, by the id of the room they lead to, least recently used first
+
+    /**
+     * Create the paths of a game. No tables are worked out
+     * until they're needed.
+     * @param world The rooms of the game, by id.
+     */
+    public RoomPaths(RoomRegistry world) {
+        this.world = world;
+        template = world.getTemplate();
+        changedRooms = new BitSet();
+        tables = new LinkedHashMap<>(16, 0.75f, true);
+        for (Room room : world.getChangedRooms()) {
+            exitsReplaced(room);
+        }
+    }
+
+    /**
+     * Return the direction of the first step of the shortest path between two rooms.
+     * @param from The room the path starts in.
+     * @param to The room the path leads to.
+     * @return The direction, or null if the rooms are the same or there is no path.
+     */
+    public Direction getNextDirection(Room from, Room to) {
+        return getTable(to.getId()).getDirection(from.getId());
+    }
+
+    /**
+     * Return the number of steps in the shortest path between two rooms.
+     * @param from The room the path starts in.
+     * @param to The room the path leads to.
+     * @return The number of steps, or -1 if there is no path.
+     */
+    public int getDistance(Room from, Room to) {
+        return getTable(to.getId()).getDistance(from.getId());
+    }
+
+    /**
+     * Return the table of paths to a room, working it out if it isn't kept.
+     */
+    private Table getTable(int target) {
+        Table table = tables.get(target);
+        if (table == null) {
+            if (changedRooms.isEmpty() && world.getLiveRoomCount() == world.getRoomCount()) {
+                table = template.getPathTable(target);
+            } else {
+                table = Table.build(template, target, this);
+            }
+            tables.put(target, table);
+            if (tables.size() > TABLES_KEPT) {
+                Iterator<Table> oldest = tables.values().iterator();
+                oldest.next();
+                oldest.remove();
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Record that one of a room's exits has changed, throwing
+     * away the tables that the change makes wrong.
+     * @param room The room.
+     * @param direction The direction of the exit.
+     * @param before The room the exit led to, null if there was no exit.
+     * @param after The room the exit leads to now, null if it was removed.
+     */
+    public void exitChanged(Room room, Direction direction, Room before, Room after) {
+        int id = room.getId();
+        updateChanged(room);
+        Iterator<Table> kept = tables.values().iterator();
+        while (kept.hasNext()) {
+            Table table = kept.next();
+            if ((before != null && table.usesExit(id, direction))
+                    || (after != null && table.isShortcut(id, after.getId()))) {
+                kept.remove();
+            }
+        }
+    }
+
+    /**
+     * Record that all of a room's exits may have changed at once,
+     * such as when a game is restored, throwing away every table.
+     * @param room The room.
+     */
+    public void exitsReplaced(Room room) {
+        updateChanged(room);
+        tables.clear();
+    }
+
+    /**
+     * Record that a room has been deleted, throwing away
+     * the tables whose paths could pass through it.
+     * @param id The id of the room.
+     */
+    public void roomDeleted(int id) {
+        tables.values().removeIf(table -> table.getDistance(id) >= 0);
+    }
+
+    /**
+     * Record whether a room's exits differ from its template's.
+     */
+    private void updateChanged(Room room) {
+        int id = room.getId();
+        RoomTemplate roomTemplate = template.getRoom(id);
+        boolean changed = false;
+        for (int i = 0; i < Direction.COUNT; i++) {
+            Direction direction = Direction.fromOrdinal(i);
+            changed |= room.getExitId(direction) != roomTemplate.getExit(direction);
+        }
+        changedRooms.set(id, changed);
+    }
+
+    /**
+     * This class holds the shortest paths from every room of a world to
+     * one room: how many steps each path has, and the direction of its
+     * first step. A table is never changed once it has been worked out,
+     * so it can be shared by games whose exits are the same.
+     */
+    public static class Table {
+        private final int[] distances;      // The number of steps from each room, by id, -1 if there is no path
+        private final byte[] directions;    // The ordinal of the first step from each room, by id, -1 for none
+
+        /**
+         * Create an empty table, with no paths.
+         */
+        private Table(int roomCount) {
+            distances = new int[roomCount];
+            directions = new byte[roomCount];
+            Arrays.fill(distances, -1);
+            Arrays.fill(directions, (byte) -1);
+        }
+
+        /**
+         * Work out the shortest paths to a room, searching backwards from
+         * it along the exits that lead into each room reached.
+         * @param template The template of the world.
+         * @param target The id of the room the paths lead to.
+         * @param paths The paths of a game whose exits differ from the
+         *              template's, or null to follow the template's exits.
+         * @return The table.
+         */
+        public static Table build(WorldTemplate template, int target, RoomPaths paths) {
+            int[] entranceStarts = template.getEntranceStarts();
+            int[] entrances = template.getEntrances();
+            HashMap<Integer, ArrayList<Integer>> newEntrances = paths == null ? null : paths.getNewEntrances();
+
+            Table table = new Table(template.getRoomCount());
+            int[] queue = new int[template.getRoomCount()];
+            int head = 0;
+            int tail = 0;
+            table.distances[target] = 0;
+            queue[tail++] = target;
+            while (head < tail) {
+                int room = queue[head++];
+                for (int i = entranceStarts[room]; i < entranceStarts[room + 1]; i++) {
+                    int entrance = entrances[i];
+                    if (paths == null || !paths.changedRooms.get(entrance / Direction.COUNT)
+                            || paths.world.getExitId(entrance / Direction.COUNT,
+                                    Direction.fromOrdinal(entrance % Direction.COUNT)) == room) {
+                        tail = table.reach(entrance, room, paths, queue, tail);
+                    }
+                }
+                ArrayList<Integer> added = newEntrances == null ? null : newEntrances.get(room);
+                if (added != null) {
+                    for (int entrance : added) {
+                        tail = table.reach(entrance, room, paths, queue, tail);
+                    }
+                }
+            }
+            return table;
+        }
+
+        /**
+         * Record a path through an exit into a room that's already been
+         * reached, if the room the exit leads from hasn't been reached yet.
+         * @return The new end of the queue of rooms reached.
+         */
+        private int reach(int entrance, int room, RoomPaths paths, int[] queue, int tail) {
+            int from = entrance / Direction.COUNT;
+            if (distances[from] >= 0 || (paths != null && paths.world.isDeleted(from))) {
+                return tail;
+            }
+            distances[from] = distances[room] + 1;
+            directions[from] = (byte) (entrance % Direction.COUNT);
+            queue[tail] = from;
+            return tail + 1;
+        }
+
+        /**
+         * Return the number of steps in the shortest path from a room.
+         * @param from The id of the room.
+         * @return The number of steps, or -1 if there is no path.
+         */
+        public int getDistance(int from) {
+            return distances[from];
+        }
+
+        /**
+         * Return the direction of the first step of the shortest path from a room.
+         * @param from The id of the room.
+         * @return The direction, or null if the room is where the paths lead or there is no path.
+         */
+        public Direction getDirection(int from) {
+            return directions[from] < 0 ? null : Direction.fromOrdinal(directions[from]);
+        }
+
+        /**
+         * Return whether any path takes a given exit.
+         */
+        private boolean usesExit(int from, Direction direction) {
+            return directions[from] == direction.ordinal();
+        }
+
+        /**
+         * Return whether a new exit between two rooms would make a shorter path.
+         */
+        private boolean isShortcut(int from, int to) {
+            return distances[to] >= 0 && (distances[from] < 0 || distances[to] + 1 < distances[from]);
+        }
+    }
+
+    /**
+     * Return the exits of the changed rooms that the template doesn't
+     * have, as room id * Direction.COUNT + direction, by the id of the
+     * room they lead to.
+     */
+    private HashMap<Integer, ArrayList<Integer>> getNewEntrances() {
+        HashMap<Integer, ArrayList<Integer>> newEntrances = new HashMap<>();
+        for (int id = changedRooms.nextSetBit(0); id >= 0; id = changedRooms.nextSetBit(id + 1)) {
+            for (int i = 0; i < Direction.COUNT; i++) {
+                Direction direction = Direction.fromOrdinal(i);
+                int to = world.getExitId(id, direction);
+                if (to >= 0 && to != template.getRoom(id).getExit(direction)) {
+                    newEntrances.computeIfAbsent(to, key -> new ArrayList<>()).add(id * Direction.COUNT + i);
+                }
+            }
+        }
+        return newEntrances;
+    }
+}
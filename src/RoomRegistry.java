@@ -0,0 +1,254 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class holds the rooms of a game. Every room has an id, its
+ * position in the world template, which never changes during the game,
+ * and rooms can be found by id or by name without searching.
+ * <p>
+ * Rooms are only created from the template when they are first needed,
+ * and are stored in pages of ids, so a game of a very large world only
+ * pays for the parts of it that have been reached.
+ * <p>
+ * Rooms can be deleted, removing them from the map without changing
+ * the id of any other room. A deleted room keeps its id, but can't be
+ * chosen as a random room.
+ */
+public class RoomRegistry {
+    private static final int PAGE_BITS = 10;                    // The number of bits of an id that pick a room within a page
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;        // The number of rooms in a page
+
+    private final WorldTemplate template;   // The template the rooms are created from
+    private final Room[][] pages;           // The rooms created so far, by id, null for pages with none
+    private BitSet deleted;                 // The ids of the deleted rooms, null if none have been deleted
+    private int deletedCount;               // The number of deleted rooms
+    private RoomPaths paths;                // The shortest paths between the rooms, null until needed
+
+    /**
+     * Create the rooms for a game. None of them are created
+     * until they're needed.
+     * @param template The template the rooms are created from.
+     */
+    public RoomRegistry(WorldTemplate template) {
+        this.template = template;
+        pages = new Room[(template.getRoomCount() + PAGE_SIZE - 1) >> PAGE_BITS][];
+        deleted = null;
+        deletedCount = 0;
+        paths = null;
+    }
+
+    /**
+     * Return the room with a given id, creating it if it
+     * hasn't been needed before.
+     * @param id The id of the room.
+     * @return The room.
+     */
+    public Room get(int id) {
+        Room[] page = pages[id >> PAGE_BITS];
+        if (page == null) {
+            page = new Room[PAGE_SIZE];
+            pages[id >> PAGE_BITS] = page;
+        }
+        Room room = page[id & (PAGE_SIZE - 1)];
+        if (room == null) {
+            room = template.getRoom(id).createRoom(this);
+            page[id & (PAGE_SIZE - 1)] = room;
+        }
+        return room;
+    }
+
+    /**
+     * Return the id of the room an exit leads to, without
+     * creating the room the exit leads from.
+     * @param id The id of the room the exit leads from.
+     * @param direction The direction of the exit.
+     * @return The id of the room the exit leads to, or -1 if there is no exit.
+     */
+    public int getExitId(int id, Direction direction) {
+        Room[] page = pages[id >> PAGE_BITS];
+        Room room = page == null ? null : page[id & (PAGE_SIZE - 1)];
+        return room == null ? template.getRoom(id).getExit(direction) : room.getExitId(direction);
+    }
+
+    /**
+     * Return the shortest paths between the rooms, following
+     * their exits as they are now.
+     * @return The paths.
+     */
+    public RoomPaths getPaths() {
+        if (paths == null) {
+            paths = new RoomPaths(this);
+        }
+        return paths;
+    }
+
+    /**
+     * Record that one of a room's exits has changed, so paths don't use
+     * the old exit. Called by the room.
+     * @param room The room.
+     * @param direction The direction of the exit.
+     * @param before The room the exit led to, null if there was no exit.
+     * @param after The room the exit leads to now, null if it was removed.
+     */
+    public void exitChanged(Room room, Direction direction, Room before, Room after) {
+        if (paths != null) {
+            paths.exitChanged(room, direction, before, after);
+        }
+    }
+
+    /**
+     * Record that all of a room's exits may have changed. Called by the room.
+     * @param room The room.
+     */
+    public void exitsReplaced(Room room) {
+        if (paths != null) {
+            paths.exitsReplaced(room);
+        }
+    }
+
+    /**
+     * Return the room with a given name.
+     * @param name The name of the room.
+     * @return The room, or null if there is no room with that name.
+     */
+    public Room get(String name) {
+        int id = template.getRoomId(name);
+        return id < 0 ? null : get(id);
+    }
+
+    /**
+     * @return The template the rooms are created from.
+     */
+    public WorldTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * Return the number of rooms in the world, including deleted ones.
+     * @return The number of rooms.
+     */
+    public int getRoomCount() {
+        return template.getRoomCount();
+    }
+
+    /**
+     * Check that a room id read from a saved game is the id of a room
+     * of this world, so a corrupt save can't be restored.
+     * @param id The id.
+     * @return The id.
+     * @throws IOException If no room has the id.
+     */
+    public int checkId(int id) throws IOException {
+        if (id < 0 || id >= template.getRoomCount()) {
+            throw new IOException("Unknown room " + id);
+        }
+        return id;
+    }
+
+    /**
+     * Return the number of rooms that haven't been deleted.
+     * @return The number of rooms left.
+     */
+    public int getLiveRoomCount() {
+        return template.getRoomCount() - deletedCount;
+    }
+
+    /**
+     * Delete a room from the map. Exits that lead to it are not removed.
+     * @param id The id of the room to delete.
+     */
+    public void delete(int id) {
+        if (deleted == null) {
+            deleted = new BitSet();
+        }
+        if (!deleted.get(id)) {
+            deleted.set(id);
+            deletedCount++;
+            if (paths != null) {
+                paths.roomDeleted(id);
+            }
+        }
+    }
+
+    /**
+     * Return whether a room has been deleted.
+     * @param id The id of the room.
+     * @return Whether or not the room has been deleted.
+     */
+    public boolean isDeleted(int id) {
+        return deleted != null && deleted.get(id);
+    }
+
+    /**
+     * Choose a room that hasn't been deleted at random.
+     * @param random The source of random numbers.
+     * @return The room, or null if every room has been deleted.
+     */
+    public Room getRandomRoom(Random random) {
+        int roomCount = template.getRoomCount();
+        if (deletedCount == 0) {
+            return get(random.nextInt(roomCount));
+        }
+        if (deletedCount == roomCount) {
+            return null;
+        }
+        if (deletedCount * 2 <= roomCount) {
+            // most rooms are left, so a few tries will find one
+            while (true) {
+                int id = random.nextInt(roomCount);
+                if (!deleted.get(id)) {
+                    return get(id);
+                }
+            }
+        }
+        int id = deleted.nextClearBit(0);
+        for (int skip = random.nextInt(roomCount - deletedCount); skip > 0; skip--) {
+            id = deleted.nextClearBit(id + 1);
+        }
+        return get(id);
+    }
+
+    /**
+     * Return the rooms created so far that have changed since the
+     * start of the game, in order of id.
+     * @return The changed rooms.
+     */
+    public List<Room> getChangedRooms() {
+        ArrayList<Room> changed = new ArrayList<>();
+        for (Room[] page : pages) {
+            if (page != null) {
+                for (Room room : page) {
+                    if (room != null && room.hasChanged()) {
+                        changed.add(room);
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Return the ids of the deleted rooms, in order.
+     * @return The ids of the deleted rooms.
+     */
+    public int[] getDeletedIds() {
+        return deleted == null ? new int[0] : deleted.stream().toArray();
+    }
+
+    /**
+     * Put every room back the way it was at the start of the game,
+     * and undelete every room. Rooms from before this are no longer
+     * part of the game.
+     */
+    public void reset() {
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = null;
+        }
+        deleted = null;
+        deletedCount = 0;
+        paths = null;
+    }
+}
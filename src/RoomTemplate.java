@@ -0,0 +1,170 @@
+/**
+ * This class holds the parts of a room that are the same in every
+ * game: its name, its description, whether it starts off dark, the
+ * exits it starts with, and the items it starts with. If the room
+ * is an elevator it also holds the floors the elevator can move to.
+ * <p>
+ * Templates can't be changed once created, so one template is shared
+ * by the rooms of every game being played. Each game's Room only
+ * stores what has changed in that game.
+ * <p>
+ * The template also keeps the room's description for each set of exits
+ * the room has had in any game, so they are only put together once.
+ */
+public class RoomTemplate {
+    public static final String DARK_DESCRIPTION = "You are in a dark room";    // The description of every dark room
+
+    private final int id;                           // The position of the room in its world
+    private final String name;
+    private final String description;
+    private final boolean dark;                     // Whether the room starts off dark
+    private final int[] exits;                      // The ids of the rooms each exit leads to, by direction, -1 for none
+    private final RoomItems items;                  // The items the room starts with, never changed
+    private final int[] floorExits;                 // The ids of the elevator's floors, null if not an elevator
+    private final int startingFloorNumber;          // The floor the elevator starts at
+    private String[] descriptions;                  // The lit room's description for each set of exits, null until needed
+
+    /**
+     * Create a room template.
+     *
+     * @param id          The position of the room in its world.
+     * @param name        The name of the room.
+     * @param description The room's description.
+     * @param dark        Whether the room starts off dark.
+     * @param exits       The ids of the rooms each exit leads to, by
+     *                    direction, -1 for no exit.
+     * @param items       The items the room starts with.
+     * @param floorExits  The ids of the rooms at each floor, if the room
+     *                    is an elevator, otherwise null.
+     * @param startingFloorNumber The floor the elevator starts at.
+     */
+    public RoomTemplate(int id, String name, String description, boolean dark, int[] exits,
+                        RoomItems items, int[] floorExits, int startingFloorNumber) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.dark = dark;
+        this.exits = exits.clone();
+        this.items = items.isEmpty() ? RoomItems.empty() : items.copy();
+        this.floorExits = floorExits == null ? null : floorExits.clone();
+        this.startingFloorNumber = startingFloorNumber;
+    }
+
+    /**
+     * Create a room for a game from this template.
+     *
+     * @param world The rooms of the game, by id.
+     * @return The room.
+     */
+    public Room createRoom(RoomRegistry world) {
+        if (isElevator()) {
+            return new Elevator(this, world);
+        }
+        return new Room(this, world);
+    }
+
+    /**
+     * @return The position of the room in its world.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return The name of the room.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The room's description.
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Return the description shown when the room is lit, followed by
+     * its exits on the next line, for example "Exits: north west".
+     * Descriptions are kept once put together, and may be shared by
+     * rooms in games on different threads: at worst two threads both
+     * put together the same description.
+     *
+     * @param exitMask The directions of the room's exits, as one bit
+     *                 for each direction, by the direction's ordinal.
+     * @return The room's description.
+     */
+    public String getDescription(int exitMask) {
+        String[] cached = descriptions;
+        if (cached == null) {
+            cached = new String[1 << Direction.COUNT];
+            descriptions = cached;
+        }
+        if (cached[exitMask] == null) {
+            StringBuilder returnString = new StringBuilder("You are ").append(description).append(".\nExits:");
+            for (int i = 0; i < Direction.COUNT; i++) {
+                if ((exitMask & (1 << i)) != 0) {
+                    returnString.append(" ").append(Direction.fromOrdinal(i));
+                }
+            }
+            cached[exitMask] = returnString.toString();
+        }
+        return cached[exitMask];
+    }
+
+    /**
+     * @return Whether the room starts off dark.
+     */
+    public boolean getDark() {
+        return dark;
+    }
+
+    /**
+     * Return the id of the room an exit the room starts with leads to.
+     *
+     * @param direction The exit's direction.
+     * @return The id of the room, or -1 if there is no exit that way.
+     */
+    public int getExit(Direction direction) {
+        return exits[direction.ordinal()];
+    }
+
+    /**
+     * @return The items the room starts with, which must not be changed.
+     */
+    public RoomItems getItems() {
+        return items;
+    }
+
+    /**
+     * @return Whether the room is an elevator.
+     */
+    public boolean isElevator() {
+        return floorExits != null;
+    }
+
+    /**
+     * Return the id of the room at a given floor of the elevator.
+     *
+     * @param floorNumber The floor number, starting at 1.
+     * @return The id of the room at that floor.
+     */
+    public int getFloorExit(int floorNumber) {
+        return floorExits[floorNumber - 1];
+    }
+
+    /**
+     * @return The number of floors the elevator can move to, 0 if the room isn't an elevator.
+     */
+    public int getFloorCount() {
+        return floorExits == null ? 0 : floorExits.length;
+    }
+
+    /**
+     * @return The floor the elevator starts at.
+     */
+    public int getStartingFloorNumber() {
+        return startingFloorNumber;
+    }
+}
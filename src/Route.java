@@ -0,0 +1,175 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * This class represents a route an NPC travels along: the ids of the
+ * rooms it passes through, starting room first, and what it does when
+ * it reaches the end.
+ * <ul>
+ * <li>ONCE routes are walked through once, and the NPC stays in the last room.</li>
+ * <li>LOOP routes go back to the first room after the last.</li>
+ * <li>PING_PONG routes are walked forwards and then backwards, over and over.</li>
+ * <li>SCHEDULED routes loop, but the NPC waits a given number of turns in each room.</li>
+ * </ul>
+ * Routes can't be changed, so one route is shared by every NPC that
+ * follows it, in every game. How far an NPC has got along its route is
+ * a single number, its cursor, which starts at 0 and goes up by one each
+ * turn the NPC moves, wrapping around when the route starts again.
+ */
+public class Route {
+    /**
+     * What an NPC does when it reaches the end of a route.
+     */
+    public enum Mode {
+        ONCE, LOOP, PING_PONG, SCHEDULED
+    }
+
+    private final Mode mode;
+    private final int[] rooms;          // The ids of the rooms along the route, starting room first
+    private final int[] arrivals;       // The cursor at which the NPC arrives at each room, null unless scheduled
+    private final int period;           // The number of moves before the route starts again
+
+    /**
+     * Create a route that doesn't wait in its rooms.
+     * @param mode What an NPC does when it reaches the end of the route, not SCHEDULED.
+     * @param rooms The ids of the rooms along the route, starting room first.
+     */
+    public Route(Mode mode, int[] rooms) {
+        this(mode, rooms, null);
+    }
+
+    /**
+     * Create a route.
+     * @param mode What an NPC does when it reaches the end of the route.
+     * @param rooms The ids of the rooms along the route, starting room first.
+     * @param turns The number of turns spent in each room, if the route is
+     *              SCHEDULED, otherwise null. Each must be at least 1.
+     * @throws IllegalArgumentException If the route has no rooms, or
+     *                                  the turns don't match the mode.
+     */
+    public Route(Mode mode, int[] rooms, int[] turns) {
+        if (rooms.length == 0) {
+            throw new IllegalArgumentException("A route needs at least one room");
+        }
+        if ((mode == Mode.SCHEDULED) != (turns != null) || (turns != null && turns.length != rooms.length)) {
+            throw new IllegalArgumentException("Only scheduled routes have turns, one for each room");
+        }
+        this.mode = mode;
+        this.rooms = rooms.clone();
+
+        if (mode == Mode.SCHEDULED) {
+            arrivals = new int[rooms.length];
+            int total = 0;
+            for (int i = 0; i < rooms.length; i++) {
+                if (turns[i] < 1) {
+                    throw new IllegalArgumentException("An NPC must spend at least one turn in each room");
+                }
+                arrivals[i] = total;
+                total += turns[i];
+            }
+            period = total;
+        } else {
+            arrivals = null;
+            period = mode == Mode.PING_PONG ? Math.max(1, 2 * rooms.length - 2) : rooms.length;
+        }
+    }
+
+    /**
+     * Return the cursor of an NPC after it moves one step.
+     * @param cursor The NPC's cursor before it moves.
+     * @return The NPC's cursor after it moves.
+     */
+    public int advance(int cursor) {
+        if (mode == Mode.ONCE) {
+            return Math.min(cursor + 1, rooms.length - 1);
+        }
+        return (cursor + 1) % period;
+    }
+
+    /**
+     * Return the id of the room an NPC is in.
+     * @param cursor The NPC's cursor.
+     * @return The id of the room.
+     */
+    public int getRoom(int cursor) {
+        switch (mode) {
+            case PING_PONG:
+                return rooms[cursor < rooms.length ? cursor : period - cursor];
+            case SCHEDULED:
+                int index = Arrays.binarySearch(arrivals, cursor);
+                return rooms[index >= 0 ? index : -index - 2];
+            default:
+                return rooms[cursor];
+        }
+    }
+
+    /**
+     * Return whether an NPC has a cursor that is possible on this route.
+     * @param cursor The cursor.
+     * @return Whether or not the cursor is possible.
+     */
+    public boolean isValidCursor(int cursor) {
+        return cursor >= 0 && cursor < (mode == Mode.ONCE ? rooms.length : period);
+    }
+
+    /**
+     * @return What an NPC does when it reaches the end of the route.
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Write the route to a world image.
+     * @param out The stream to write to.
+     * @throws IOException If the route could not be written.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeByte(mode.ordinal());
+        out.writeInt(rooms.length);
+        for (int i = 0; i < rooms.length; i++) {
+            out.writeInt(rooms[i]);
+            if (mode == Mode.SCHEDULED) {
+                int next = i + 1 < rooms.length ? arrivals[i + 1] : period;
+                out.writeInt(next - arrivals[i]);
+            }
+        }
+    }
+
+    /**
+     * Read a route from a world image.
+     * @param in The stream to read from.
+     * @param roomCount The number of rooms in the world.
+     * @return The route.
+     * @throws IOException If the route could not be read.
+     */
+    public static Route read(DataInputStream in, int roomCount) throws IOException {
+        int modeNumber = in.readByte();
+        if (modeNumber < 0 || modeNumber >= Mode.values().length) {
+            throw new IOException("Unknown route mode " + modeNumber);
+        }
+        Mode mode = Mode.values()[modeNumber];
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid route length " + length);
+        }
+        int[] rooms = new int[length];
+        int[] turns = mode == Mode.SCHEDULED ? new int[length] : null;
+        for (int i = 0; i < length; i++) {
+            rooms[i] = in.readInt();
+            if (rooms[i] < 0 || rooms[i] >= roomCount) {
+                throw new IOException("Route has an unknown room " + rooms[i]);
+            }
+            if (turns != null) {
+                turns[i] = in.readInt();
+            }
+        }
+        try {
+            return new Route(mode, rooms, turns);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+}
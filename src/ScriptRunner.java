@@ -0,0 +1,95 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * This class plays games of "The Clockwork Tower" from a script
+ * instead of from the terminal. A script holds every line the
+ * player would type, one per line: their name, then their commands,
+ * including answers to any questions they're asked.
+ * <p>
+ * Scripted games never pause and never wait for input. When the
+ * script runs out the game ends as if the player had quit.
+ */
+public class ScriptRunner {
+
+    /**
+     * Play a game from a script.
+     * @param script The lines the player types.
+     * @return The result of the game.
+     */
+    public static Result run(String script) {
+        return run(new StringReader(script));
+    }
+
+    /**
+     * Play a game from a script.
+     * @param script The source of the lines the player types.
+     * @return The result of the game.
+     */
+    public static Result run(Reader script) {
+        ByteArrayOutputStream transcript = new ByteArrayOutputStream();
+        Game game = new Game(script, new GameOutput(transcript), GameClock.instant());
+        game.play();
+        return new Result(new String(transcript.toByteArray(), StandardCharsets.UTF_8), game);
+    }
+
+    /**
+     * Play a game from each of the given script files, printing
+     * the transcript of each game followed by its final state.
+     * @param args The names of the script files.
+     */
+    public static void main(String[] args) throws IOException {
+        for (String filename : args) {
+            String script = new String(Files.readAllBytes(Paths.get(filename)), StandardCharsets.UTF_8);
+            Result result = run(script);
+            Player player = result.getGame().getPlayer();
+            System.out.print(result.getTranscript());
+            System.out.println();
+            System.out.println("--- " + filename + " ---");
+            System.out.println("Room: " + player.getCurrentRoom().getName());
+            System.out.println("Coin balance: " + player.getBalance());
+            System.out.println("Items: " + player.getItemCount());
+            System.out.println("Game time: " + result.getGame().getClock().getElapsedTime() + "ms");
+        }
+    }
+
+    /**
+     * This class holds the result of a scripted game: everything
+     * the game printed, and the game itself in its final state.
+     */
+    public static class Result {
+        private final String transcript;
+        private final Game game;
+
+        /**
+         * Create the result of a game.
+         * @param transcript Everything the game printed.
+         * @param game The game in its final state.
+         */
+        public Result(String transcript, Game game) {
+            this.transcript = transcript;
+            this.game = game;
+        }
+
+        /**
+         * Return everything the game printed.
+         * @return The transcript of the game.
+         */
+        public String getTranscript() {
+            return transcript;
+        }
+
+        /**
+         * Return the game in its final state.
+         * @return The game.
+         */
+        public Game getGame() {
+            return game;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class keeps track of the games hosted by a GameServer, and
+ * limits how many of them are kept in memory. Games that have been
+ * waiting for a command for too long are saved to a folder on disk
+ * and removed from memory, and are restored from it when the player
+ * types their next command.
+ * <p>
+ * The games in memory are kept in order of when they were last used.
+ * If there are too many, the least recently used one is saved to disk
+ * as soon as it is waiting for a command.
+ * <p>
+ * It also records how often a command arrives for a game in memory,
+ * how many games are saved to disk, and how long restoring them takes.
+ */
+public class SessionManager {
+    private final int maxLiveSessions;                  // The number of games kept in memory
+    private final long idleTime;                        // How long a game waits before being saved, in nanoseconds
+    private final Path store;                           // The folder games are saved to
+    private final LinkedHashMap<Long, Session> live;    // The games in memory, least recently used first
+    private int evictedCount;                           // The games in memory that are waiting to be saved because there were too many
+    private final AtomicLong nextId;                    // The id of the next game
+    private final AtomicLong hits;                      // Commands played by games that were already in memory
+    private final AtomicLong restores;                  // Games restored from disk
+    private final AtomicLong idleHibernations;          // Games saved to disk because they were idle
+    private final AtomicLong evictions;                 // Games saved to disk because there were too many in memory
+    private final AtomicLong totalRestoreTime;          // The total time spent restoring games, in nanoseconds
+    private final AtomicLong maxRestoreTime;            // The longest time spent restoring a game, in nanoseconds
+
+    /**
+     * Create a session manager.
+     * @param maxLiveSessions The number of games kept in memory.
+     * @param idleTime How long a game waits for a command before being saved to disk, in milliseconds.
+     * @param store The folder games are saved to.
+     */
+    public SessionManager(int maxLiveSessions, long idleTime, Path store) {
+        this.maxLiveSessions = maxLiveSessions;
+        this.idleTime = idleTime * 1000000;
+        this.store = store;
+        live = new LinkedHashMap<>(16, 0.75f, true);
+        evictedCount = 0;
+        nextId = new AtomicLong();
+        hits = new AtomicLong();
+        restores = new AtomicLong();
+        idleHibernations = new AtomicLong();
+        evictions = new AtomicLong();
+        totalRestoreTime = new AtomicLong();
+        maxRestoreTime = new AtomicLong();
+    }
+
+    /**
+     * Return how often a waiting game should check whether it
+     * should be saved, in milliseconds.
+     * @return The check interval.
+     */
+    public int getCheckInterval() {
+        return (int) Math.max(1, Math.min(1000, idleTime / 1000000));
+    }
+
+    /**
+     * Start keeping track of a new game, which is in memory.
+     * @return The game's session.
+     */
+    public Session open() {
+        Session session = new Session(nextId.getAndIncrement());
+        makeLive(session);
+        return session;
+    }
+
+    /**
+     * Save a suspended game to disk and remove it from memory.
+     * @param session The game's session.
+     * @param game The game.
+     * @throws IOException If the game could not be saved.
+     */
+    public void hibernate(Session session, Game game) throws IOException {
+        Files.write(getPath(session), game.save());
+        removeLive(session);
+        if (session.evicted) {
+            evictions.incrementAndGet();
+        } else {
+            idleHibernations.incrementAndGet();
+        }
+    }
+
+    /**
+     * Restore a game that was saved to disk, to be continued
+     * with continuePlaying.
+     * @param session The game's session.
+     * @param input The source of the player's input.
+     * @param out The output the game's text is printed to.
+     * @param clock The clock that controls how long the game pauses for.
+     * @return The restored game.
+     * @throws IOException If the game could not be restored.
+     */
+    public Game wake(Session session, Reader input, GameOutput out, GameClock clock) throws IOException {
+        long start = System.nanoTime();
+        Game game = new Game(input, out, clock);
+        game.restore(Files.readAllBytes(getPath(session)));
+        game.setIdleHandler(session);
+        session.woken = true;
+        makeLive(session);
+
+        long restoreTime = System.nanoTime() - start;
+        restores.incrementAndGet();
+        totalRestoreTime.addAndGet(restoreTime);
+        maxRestoreTime.accumulateAndGet(restoreTime, Math::max);
+        return game;
+    }
+
+    /**
+     * Stop keeping track of a game that has ended.
+     * @param session The game's session.
+     */
+    public void close(Session session) {
+        removeLive(session);
+        try {
+            Files.deleteIfExists(getPath(session));
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Add a game to those in memory. If there are now too many, mark the
+     * least recently used one that isn't already marked to be saved to
+     * disk when it next waits. It stays in memory until it's saved.
+     */
+    private void makeLive(Session session) {
+        synchronized (live) {
+            session.evicted = false;
+            live.put(session.id, session);
+            if (live.size() - evictedCount > maxLiveSessions) {
+                for (Session leastRecentlyUsed : live.values()) {
+                    if (!leastRecentlyUsed.evicted) {
+                        leastRecentlyUsed.evicted = true;
+                        evictedCount++;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove a game from those in memory.
+     */
+    private void removeLive(Session session) {
+        synchronized (live) {
+            if (live.remove(session.id) != null && session.evicted) {
+                evictedCount--;
+            }
+        }
+    }
+
+    /**
+     * Return the file a game is saved to.
+     */
+    private Path getPath(Session session) {
+        return store.resolve("session-" + session.id + ".bin");
+    }
+
+    /**
+     * Return the fraction of commands that arrived for a game in memory.
+     * The first command played by a game restored from disk is not
+     * counted as a hit, as the game had to be restored for it.
+     * @return The hit rate, between 0 and 1.
+     */
+    public double getHitRate() {
+        long total = hits.get() + restores.get();
+        return total == 0 ? 1 : (double) hits.get() / total;
+    }
+
+    /**
+     * @return The number of games currently in memory, including those waiting to be saved.
+     */
+    public int getLiveSessions() {
+        synchronized (live) {
+            return live.size();
+        }
+    }
+
+    /**
+     * @return The number of games saved to disk because there were too many in memory.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return The number of games saved to disk because they were idle.
+     */
+    public long getIdleHibernations() {
+        return idleHibernations.get();
+    }
+
+    /**
+     * @return The number of games restored from disk.
+     */
+    public long getRestores() {
+        return restores.get();
+    }
+
+    /**
+     * @return The average time taken to restore a game, in nanoseconds.
+     */
+    public long getAverageRestoreTime() {
+        long count = restores.get();
+        return count == 0 ? 0 : totalRestoreTime.get() / count;
+    }
+
+    /**
+     * @return The longest time taken to restore a game, in nanoseconds.
+     */
+    public long getMaxRestoreTime() {
+        return maxRestoreTime.get();
+    }
+
+    /**
+     * Return a summary of the session manager's measurements.
+     * @return The summary.
+     */
+    @Override
+    public String toString() {
+        return "Live sessions: " + getLiveSessions() + "/" + maxLiveSessions
+                + ", hit rate: " + String.format("%.3f", getHitRate())
+                + ", idle hibernations: " + getIdleHibernations()
+                + ", evictions: " + getEvictions()
+                + ", restores: " + getRestores()
+                + ", restore time avg/max: " + getAverageRestoreTime() / 1000 + "/" + getMaxRestoreTime() / 1000 + "us";
+    }
+
+    /**
+     * This class represents one game being kept track of. It decides
+     * when the game should be suspended so it can be saved to disk.
+     */
+    public class Session implements IdleHandler {
+        private final long id;              // The id of the game
+        private volatile boolean evicted;   // Whether the game should be saved as soon as it waits
+        private volatile boolean woken;     // Whether the game has been restored from disk and not played a command since
+
+        /**
+         * Create a session.
+         * @param id The id of the game.
+         */
+        private Session(long id) {
+            this.id = id;
+        }
+
+        /**
+         * @return The id of the game.
+         */
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * Record a command played by the game, making it the most recently
+         * used game. The command is a hit unless it's the first since
+         * the game was restored, which is counted as a restore instead.
+         */
+        @Override
+        public void commandPlayed() {
+            if (woken) {
+                woken = false;
+            } else {
+                hits.incrementAndGet();
+            }
+            synchronized (live) {
+                live.get(id);
+            }
+        }
+
+        /**
+         * The game should be suspended if it's been waiting too long,
+         * or there are too many games in memory and it's the least
+         * recently used.
+         * @param idleTime How long the game has been waiting, in nanoseconds.
+         * @return Whether or not the game should be suspended.
+         */
+        @Override
+        public boolean shouldSuspend(long idleTime) {
+            return evicted || idleTime >= SessionManager.this.idleTime;
+        }
+    }
+}
@@ -1,21 +1,36 @@
-
 /**
  * This class represents a spell in the game,
- * storing it's name and whether or not it
- * is a single use spell
+ * storing it's name, whether or not it is a
+ * single use spell, and what it does when cast.
+ * <p>
+ * Each spell has a position in the order spells were registered, its
+ * ordinal, so a spellbook can hold one bit for each spell. A spell can
+ * also be learnt from a scroll, an item named after the spell followed
+ * by "_scroll".
  */
 public class Spell {
     private final String name;
+    private final int symbol;           // The symbol of the spell's name
+    private final int scrollSymbol;     // The symbol of the name of the spell's scroll
+    private final int ordinal;          // The position of the spell in the order spells were registered
     private final boolean singleUse;
+    private final SpellEffect effect;   // What the spell does when cast
 
     /**
      * Create a spell, setting all of it's variables.
+     * Spells are created by registering them with Spells.
      * @param name The name of the spell.
+     * @param ordinal The position of the spell in the order spells were registered.
      * @param singleUse Whether or not the spell can only be used once.
+     * @param effect What the spell does when cast.
      */
-    public Spell(String name, boolean singleUse) {
+    Spell(String name, int ordinal, boolean singleUse, SpellEffect effect) {
         this.name = name;
+        symbol = Symbols.intern(name);
+        scrollSymbol = Symbols.intern(name + "_scroll");
+        this.ordinal = ordinal;
         this.singleUse = singleUse;
+        this.effect = effect;
     }
 
     /**
@@ -26,6 +41,38 @@ public class Spell {
         return name;
     }
 
+    /**
+     * Get the symbol of the spell's name.
+     * @return The symbol of the spell's name.
+     */
+    public int getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * Get the symbol of the name of the scroll the spell is learnt from.
+     * @return The symbol of the scroll's name.
+     */
+    public int getScrollSymbol() {
+        return scrollSymbol;
+    }
+
+    /**
+     * Get the position of the spell in the order spells were registered.
+     * @return The spell's ordinal.
+     */
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    /**
+     * Get the spell's bit in a spellbook.
+     * @return A number with only the spell's bit set.
+     */
+    public long getBit() {
+        return 1L << ordinal;
+    }
+
     /**
      * Get whether or not the spell is a single use spell.
      * @return whether or not the spell is a single use spell.
@@ -34,4 +81,14 @@ public class Spell {
         return singleUse;
     }
 
+    /**
+     * Carry out the effect of the spell.
+     * @param game The game the spell is cast in.
+     * @param command The cast command.
+     * @return Whether or not the spell ends the game.
+     */
+    public boolean cast(Game game, Command command) {
+        return effect.cast(game, command);
+    }
+
 }
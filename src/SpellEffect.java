@@ -0,0 +1,19 @@
+/**
+ * This interface is implemented by the objects that carry out the
+ * effects of spells. Each spell is registered with its effect in
+ * Spells, so once the spell being cast has been found its effect
+ * can be carried out without checking its name again.
+ */
+public interface SpellEffect {
+
+    /**
+     * Carry out the effect of a spell the player has cast. If the spell
+     * can only be used once, it's already been removed from the player's
+     * spellbook.
+     * @param game The game the spell is cast in.
+     * @param command The cast command, with the name of the spell as its
+     *                second word and the target, if any, as its third.
+     * @return true If the spell ends the game, false otherwise.
+     */
+    boolean cast(Game game, Command command);
+}
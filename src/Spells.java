@@ -1,26 +1,78 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * This class holds all of the spells in the game
  * and has accessor methods for them.
+ * <p>
+ * Spells are registered along with their effects, so new spells can be
+ * added without changing the code that casts them. Each is given the
+ * next ordinal, and a spellbook is a single long with one bit for each
+ * spell, so there can be at most 64 spells. Spells are found by the
+ * symbol of their name, or of their scroll's name, without searching.
  */
 public class Spells {
-    private static final Spell[] SPELLS = {
-            new Spell("illuminate", false), new Spell("identify", false), new Spell("eliminate", true), new Spell("rejuvenate", true), new Spell("mesmerize", true), new Spell("descend", true)
-    };
+    public static final int MAX_SPELLS = Long.SIZE;     // The most spells a spellbook can hold
+
+    private static volatile Spell[] spells = new Spell[0];      // The spells, by ordinal
+    private static final ConcurrentHashMap<Integer, Spell> BY_SYMBOL = new ConcurrentHashMap<>();   // The spells, by the symbol of their name
+    private static final ConcurrentHashMap<Integer, Spell> BY_SCROLL = new ConcurrentHashMap<>();   // The spells, by the symbol of their scroll's name
 
     /**
-     * Get an array containing the names of all of the spells in the game
-     *
-     * @return An array containing the names of all of the spells in the game
+     * Spells only has static methods.
      */
-    public static String[] getSpellNames() {
-        int spellsLength = SPELLS.length;
-        String[] spellNames = new String[spellsLength];
+    private Spells() {
+    }
 
-        for (int i = 0; i < spellsLength; i++) {
-            spellNames[i] = SPELLS[i].getName();
+    /**
+     * Add a spell to the game, giving it the next ordinal.
+     * @param name The name of the spell.
+     * @param singleUse Whether or not the spell can only be used once.
+     * @param effect What the spell does when cast.
+     * @return The spell.
+     * @throws IllegalArgumentException If there is already a spell with that name.
+     * @throws IllegalStateException If there are already MAX_SPELLS spells.
+     */
+    public static synchronized Spell register(String name, boolean singleUse, SpellEffect effect) {
+        if (BY_SYMBOL.containsKey(Symbols.intern(name))) {
+            throw new IllegalArgumentException("There is already a spell called " + name);
+        }
+        if (spells.length == MAX_SPELLS) {
+            throw new IllegalStateException("A spellbook can't hold more than " + MAX_SPELLS + " spells");
         }
+        Spell spell = new Spell(name, spells.length, singleUse, effect);
+        BY_SYMBOL.put(spell.getSymbol(), spell);
+        BY_SCROLL.put(spell.getScrollSymbol(), spell);
+        Spell[] more = Arrays.copyOf(spells, spells.length + 1);
+        more[spell.getOrdinal()] = spell;
+        spells = more;
+        return spell;
+    }
 
-        return spellNames;
+    /**
+     * Get a spellbook holding every spell in the game.
+     * @return A spellbook with the bit of every spell set.
+     */
+    public static long getAllSpells() {
+        int count = spells.length;
+        return count == MAX_SPELLS ? -1L : (1L << count) - 1;
+    }
+
+    /**
+     * Get the spell with a given ordinal.
+     * @param ordinal The position of the spell in the order spells were registered.
+     * @return The spell.
+     */
+    public static Spell getSpell(int ordinal) {
+        return spells[ordinal];
+    }
+
+    /**
+     * Get the number of spells in the game.
+     * @return The number of spells.
+     */
+    public static int getSpellCount() {
+        return spells.length;
     }
 
     /**
@@ -29,10 +81,25 @@ public class Spells {
      * @return The spell being searched for
      */
     public static Spell getSpell(String spellName) {
-        for (Spell spell : SPELLS) {
-            if (spell.getName().equals(spellName)) return spell;
-        }
-        return null;
+        return getSpellBySymbol(Symbols.lookup(spellName));
+    }
+
+    /**
+     * Get a spell by the symbol of its name. If the spell doesn't exist return null.
+     * @param symbol The symbol of the name of the spell being searched for.
+     * @return The spell being searched for
+     */
+    public static Spell getSpellBySymbol(int symbol) {
+        return symbol < 0 ? null : BY_SYMBOL.get(symbol);
+    }
+
+    /**
+     * Get the spell a scroll teaches. If the item isn't a scroll return null.
+     * @param itemSymbol The symbol of the name of the item.
+     * @return The spell the scroll teaches.
+     */
+    public static Spell getScrollSpell(int itemSymbol) {
+        return itemSymbol < 0 ? null : BY_SCROLL.get(itemSymbol);
     }
 
 }
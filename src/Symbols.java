@@ -0,0 +1,62 @@
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class gives each name used in the game, such as the name of an
+ * item, an NPC or a spell, a number of its own, its symbol. Symbols are
+ * handed out in order from 0, so they can be used as positions in an
+ * array, and comparing two symbols is much cheaper than comparing two
+ * names.
+ * <p>
+ * Names are given their symbols as worlds are loaded and items are
+ * created, and a name keeps the same symbol for as long as the program
+ * runs, so symbols are shared by every game being played. Symbols are
+ * never written to saved games or world images, since a name may be
+ * given a different symbol the next time the program runs.
+ */
+public class Symbols {
+    private static final ConcurrentHashMap<String, Integer> SYMBOLS = new ConcurrentHashMap<>();    // The symbol of each name
+
+    /**
+     * Symbols only has static methods.
+     */
+    private Symbols() {
+    }
+
+    /**
+     * Return the symbol of a name, giving it the next
+     * symbol if it doesn't have one yet.
+     * @param name The name.
+     * @return The symbol of the name.
+     */
+    public static int intern(String name) {
+        Integer symbol = SYMBOLS.get(name);
+        if (symbol != null) {
+            return symbol;
+        }
+        synchronized (SYMBOLS) {
+            return SYMBOLS.computeIfAbsent(name, key -> SYMBOLS.size());
+        }
+    }
+
+    /**
+     * Return the symbol of a name, without giving it one. Words
+     * typed by the player are looked up rather than interned, so
+     * they can't fill the table up.
+     * @param name The name, which may be null.
+     * @return The symbol of the name, or -1 if it doesn't have one.
+     */
+    public static int lookup(String name) {
+        if (name == null) {
+            return -1;
+        }
+        Integer symbol = SYMBOLS.get(name);
+        return symbol == null ? -1 : symbol;
+    }
+
+    /**
+     * @return The number of names that have been given symbols.
+     */
+    public static int size() {
+        return SYMBOLS.size();
+    }
+}
@@ -0,0 +1,217 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.net.SocketTimeoutException;
+
+/**
+ * This class reads lines of user input from a source and splits
+ * them into words. The characters of a line are held in a buffer
+ * that is reused for every line, and the words are recorded as
+ * offsets into that buffer, so reading and splitting a line does
+ * not create any new objects.
+ * <p>
+ * Only the first few words of a line are recorded, any words
+ * after those are ignored. Lines are also limited in length, any
+ * characters past the limit are ignored, so a line that never
+ * ends can't use up memory.
+ * <p>
+ * When a line is split its words are converted to lower case in place.
+ * <p>
+ * If the source has a time limit for reading, such as a network
+ * connection with a timeout, reading a line stops when the limit
+ * is reached before any of the line has been read.
+ */
+public class Tokenizer {
+    private static final int MAX_WORDS = 3;     // The number of words recorded for each line
+    private static final int MAX_LINE_LENGTH = 1024;    // The number of characters kept from each line
+
+    private final Reader reader;                // The source of the input
+    private final char[] input;                 // Characters read from the source but not yet used
+    private int inputPosition;                  // The position of the next unused character in input
+    private int inputLimit;                     // The number of characters in input
+    private final char[] line;                  // The characters of the current line
+    private int lineLength;                     // The number of characters in the current line
+    private final int[] wordStarts;             // The offset in line each word begins at
+    private final int[] wordEnds;               // The offset in line each word ends at
+    private int wordCount;                      // The number of words in the current line
+    private boolean timedOut;                   // Whether the last line wasn't read because the time limit was reached
+
+    /**
+     * Create a tokenizer that reads lines from a given source.
+     * @param reader The source of the input.
+     */
+    public Tokenizer(Reader reader) {
+        this.reader = reader;
+        input = new char[1024];
+        line = new char[MAX_LINE_LENGTH];
+        wordStarts = new int[MAX_WORDS];
+        wordEnds = new int[MAX_WORDS];
+    }
+
+    /**
+     * Read the next line from the source into the buffer,
+     * replacing the previous line.
+     * @return false if there is no more input, or the time limit was
+     * reached before any of the line was read, true otherwise.
+     */
+    public boolean readLine() {
+        lineLength = 0;
+        wordCount = 0;
+        boolean readAnything = false;
+
+        while (true) {
+            if (inputPosition == inputLimit && !fillInput()) {
+                if (timedOut && readAnything) {
+                    timedOut = false;
+                    continue;   // wait for the rest of the line
+                }
+                if (!readAnything) {
+                    return false;
+                }
+                break;
+            }
+            readAnything = true;
+            char c = input[inputPosition++];
+            if (c == '\n') {
+                break;
+            }
+            if (lineLength < MAX_LINE_LENGTH) {
+                line[lineLength++] = c;
+            }
+        }
+
+        if (lineLength > 0 && line[lineLength - 1] == '\r') {
+            lineLength--;
+        }
+        return true;
+    }
+
+    /**
+     * Read more characters from the source.
+     * @return Whether or not any characters were read.
+     */
+    private boolean fillInput() {
+        timedOut = false;
+        try {
+            int read;
+            do {
+                read = reader.read(input, 0, input.length);
+            } while (read == 0);
+            if (read < 0) {
+                return false;
+            }
+            inputPosition = 0;
+            inputLimit = read;
+            return true;
+        } catch (SocketTimeoutException e) {
+            timedOut = true;
+            return false;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Return whether the last line wasn't read because the
+     * source's time limit was reached, rather than because
+     * there is no more input.
+     * @return Whether or not reading the last line timed out.
+     */
+    public boolean hasTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Split the current line into words, converting each
+     * recorded word to lower case.
+     */
+    public void split() {
+        wordCount = 0;
+        int i = 0;
+        while (i < lineLength && wordCount < MAX_WORDS) {
+            while (i < lineLength && Character.isWhitespace(line[i])) {
+                i++;
+            }
+            if (i == lineLength) {
+                break;
+            }
+            wordStarts[wordCount] = i;
+            while (i < lineLength && !Character.isWhitespace(line[i])) {
+                line[i] = Character.toLowerCase(line[i]);
+                i++;
+            }
+            wordEnds[wordCount] = i;
+            wordCount++;
+        }
+    }
+
+    /**
+     * Return the current line with any leading and trailing
+     * whitespace removed.
+     * @return The current line.
+     */
+    public String getLine() {
+        return new String(line, 0, lineLength).trim();
+    }
+
+    /**
+     * Return the number of words in the current line.
+     * @return The number of words, up to the maximum recorded.
+     */
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * Return the word at a given position in the current line.
+     * If the line doesn't have that many words, return null.
+     * @param index The position of the word, starting at 0.
+     * @return The word at that position.
+     */
+    public String getWord(int index) {
+        if (index >= wordCount) {
+            return null;
+        }
+        return new String(line, wordStarts[index], wordEnds[index] - wordStarts[index]);
+    }
+
+    /**
+     * Return the hash code of the word at a given position in the
+     * current line, the same as the hash code of the word as a String.
+     * @param index The position of the word, starting at 0.
+     * @return The hash code of the word, or 0 if there is no such word.
+     */
+    public int wordHashCode(int index) {
+        if (index >= wordCount) {
+            return 0;
+        }
+        int hash = 0;
+        for (int i = wordStarts[index]; i < wordEnds[index]; i++) {
+            hash = 31 * hash + line[i];
+        }
+        return hash;
+    }
+
+    /**
+     * Check if the word at a given position in the current line
+     * is the same as a given String, without creating a new String.
+     * @param index The position of the word, starting at 0.
+     * @param word The String to compare the word to.
+     * @return Whether or not the word is the same as the String.
+     */
+    public boolean wordEquals(int index, String word) {
+        if (index >= wordCount) {
+            return false;
+        }
+        int start = wordStarts[index];
+        int length = wordEnds[index] - start;
+        if (length != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (line[start + i] != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,232 @@
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class measures how the game copes with very large maps. For
+ * each size of tower, from 10^2 rooms up to a given power of ten, it
+ * makes a tower with a TowerGenerator and reports:
+ * <ul>
+ * <li>how long the tower took to make, and how much memory it uses</li>
+ * <li>how much memory a new game on the tower uses</li>
+ * <li>how long the go, investigate and take commands take to play</li>
+ * <li>how long it takes to move every NPC one step along its route</li>
+ * <li>how long it takes to move an elevator</li>
+ * </ul>
+ * Large towers need a large heap, around 5GB for 10^7 rooms.
+ */
+public class TowerBenchmark {
+    private static final int MAX_ROOMS_PER_FLOOR = 1000;    // The size of each floor of the larger towers
+    private static final int ROOMS_PER_NPC = 1000;          // The number of rooms for each NPC
+    private static final int ROUTE_LENGTH = 100;            // The number of rooms in each NPC's route
+    private static final double ITEM_CHANCE = 0.3;          // The chance of each room starting with an item
+    private static final int WALK_LENGTH = 500;             // The number of rooms walked through in each game
+    private static final int ELEVATOR_MOVES = 1000;         // The most elevators moved
+
+    /**
+     * Run the benchmark, printing a line of results for each size of tower.
+     * @param args The power of ten of the largest tower (default 6).
+     */
+    public static void main(String[] args) {
+        int maxPower = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+
+        System.out.printf("%10s %9s %10s %8s %9s %9s %12s %9s %9s %10s %10s%n", "rooms", "build ms", "tower MB",
+                "game KB", "go us", "go p99", "investigate", "take us", "take p99", "npc tick us", "elevator us");
+        for (int power = 2; power <= maxPower; power++) {
+            run((int) Math.pow(10, power));
+        }
+    }
+
+    /**
+     * Measure a tower with a given number of rooms, printing the results.
+     */
+    private static void run(int rooms) {
+        int roomsPerFloor = Math.min(MAX_ROOMS_PER_FLOOR, rooms / 2);
+        int floors = rooms / roomsPerFloor;
+        TowerGenerator generator = new TowerGenerator(floors, roomsPerFloor, Math.max(4, rooms / ROOMS_PER_NPC),
+                ROUTE_LENGTH, ITEM_CHANCE, rooms);
+
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        WorldTemplate tower = generator.generate();
+        long buildTime = System.nanoTime() - start;
+        long towerSize = usedHeap() - heapBefore;
+
+        // the first game warms up the code being measured
+        String[] script = createScript(tower);
+        playGame(tower, script);
+        heapBefore = usedHeap();
+        TimedScript input = new TimedScript(script);
+        Game game = new Game(input, new GameOutput(OutputStream.nullOutputStream()), GameClock.instant(), 0, tower);
+        long gameSize = usedHeap() - heapBefore;
+        game.play();
+        long[][] latencies = input.getLatencies("go ", "investigate", "take ");
+
+        System.out.printf("%10d %9.1f %10.1f %8d %9.1f %9.1f %12.1f %9.1f %9.1f %10.1f %10.3f%n", tower.getRoomCount(),
+                buildTime / 1e6, towerSize / 1e6, gameSize / 1000,
+                percentile(latencies[0], 0.5) / 1e3, percentile(latencies[0], 0.99) / 1e3,
+                percentile(latencies[1], 0.5) / 1e3,
+                percentile(latencies[2], 0.5) / 1e3, percentile(latencies[2], 0.99) / 1e3,
+                timeNpcTick(tower) / 1e3, timeElevatorMove(tower, floors - 1) / 1e3);
+    }
+
+    /**
+     * Make the lines a player types in a game: their name, a command
+     * for the opening scene, and then a random walk through the tower,
+     * investigating each room and taking an item from it if it has one.
+     */
+    private static String[] createScript(WorldTemplate tower) {
+        ArrayList<String> script = new ArrayList<>();
+        script.add("tester");
+        script.add("help");
+        Random random = new Random(1);
+        RoomTemplate room = tower.getRoom(tower.getStartRoom());
+        for (int step = 0; step < WALK_LENGTH; step++) {
+            Direction direction;
+            do {
+                direction = Direction.fromOrdinal(random.nextInt(Direction.COUNT));
+            } while (room.getExit(direction) < 0);
+            room = tower.getRoom(room.getExit(direction));
+            script.add("go " + direction);
+            script.add("investigate");
+            if (room.getItems().getObtainable().size() > 0) {
+                script.add("take " + room.getItems().getObtainable().getItem(0).getName());
+            }
+        }
+        script.add("quit");
+        return script.toArray(new String[0]);
+    }
+
+    /**
+     * Play a game on a tower, following a script.
+     */
+    private static void playGame(WorldTemplate tower, String[] script) {
+        new Game(new TimedScript(script), new GameOutput(OutputStream.nullOutputStream()), GameClock.instant(), 0, tower)
+                .play();
+    }
+
+    /**
+     * Return the average time taken to move every NPC in a new game one
+     * step along its route, in nanoseconds.
+     */
+    private static long timeNpcTick(WorldTemplate tower) {
+        NPCs npcs = tower.createNpcs(new RoomRegistry(tower));
+        for (int i = 0; i < ROUTE_LENGTH / 2; i++) {
+            npcs.moveNpcs();    // warm up
+        }
+        npcs = tower.createNpcs(new RoomRegistry(tower));
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUTE_LENGTH; i++) {
+            npcs.moveNpcs();
+        }
+        return (System.nanoTime() - start) / ROUTE_LENGTH;
+    }
+
+    /**
+     * Return the average time taken to move an elevator
+     * to another floor, in nanoseconds.
+     */
+    private static long timeElevatorMove(WorldTemplate tower, int elevators) {
+        RoomRegistry world = new RoomRegistry(tower);
+        int count = Math.min(elevators, ELEVATOR_MOVES);
+        if (count == 0) {
+            return 0;
+        }
+        Elevator[] lifts = new Elevator[count];
+        for (int i = 0; i < count; i++) {
+            lifts[i] = (Elevator) world.get("lift" + i);
+        }
+        long start = System.nanoTime();
+        for (Elevator lift : lifts) {
+            lift.move(2);
+            lift.move(1);
+        }
+        return (System.nanoTime() - start) / (2L * count);
+    }
+
+    /**
+     * Return the amount of memory in use, after collecting garbage.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Return a percentile of some values, sorting them first.
+     */
+    private static long percentile(long[] values, double fraction) {
+        if (values.length == 0) {
+            return 0;
+        }
+        Arrays.sort(values);
+        int index = (int) Math.ceil(fraction * values.length) - 1;
+        return values[Math.max(0, index)];
+    }
+
+    /**
+     * This class is the source of a player's input that gives the game
+     * one line each time it reads, and records when each line is read.
+     * A line is only read once the game has finished with the one
+     * before it, so the time between reads is how long each line took.
+     */
+    private static class TimedScript extends Reader {
+        private final String[] lines;       // The lines to give the game
+        private final long[] readTimes;     // When each line was read, in nanoseconds
+        private int nextLine;               // The position of the next line to give
+
+        /**
+         * Create a source of input from some lines.
+         * @param lines The lines to give the game.
+         */
+        TimedScript(String[] lines) {
+            this.lines = lines;
+            readTimes = new long[lines.length + 1];
+            nextLine = 0;
+        }
+
+        /**
+         * Give the game the next line, and record when it was read.
+         */
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            readTimes[nextLine] = System.nanoTime();
+            if (nextLine == lines.length) {
+                return -1;
+            }
+            String line = lines[nextLine++] + "\n";
+            line.getChars(0, line.length(), buffer, offset);
+            return line.length();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        /**
+         * Return how long the lines starting with each of some
+         * prefixes took, in nanoseconds.
+         */
+        long[][] getLatencies(String... prefixes) {
+            long[][] latencies = new long[prefixes.length][];
+            for (int p = 0; p < prefixes.length; p++) {
+                ArrayList<Long> times = new ArrayList<>();
+                for (int i = 0; i < nextLine - 1; i++) {
+                    if (lines[i].startsWith(prefixes[p])) {
+                        times.add(readTimes[i + 1] - readTimes[i]);
+                    }
+                }
+                latencies[p] = new long[times.size()];
+                for (int i = 0; i < latencies[p].length; i++) {
+                    latencies[p][i] = times.get(i);
+                }
+            }
+            return latencies;
+        }
+    }
+}
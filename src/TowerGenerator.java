@@ -0,0 +1,170 @@
+import java.util.Random;
+
+/**
+ * This class makes towers of any size, so the game can be tried out
+ * on maps much larger than the Clockwork Tower. The same settings and
+ * seed always make the same tower.
+ * <p>
+ * Each floor is a grid of rooms, joined to their neighbours to the
+ * north, south, east and west. Each pair of neighbouring floors is
+ * joined by an elevator, which leads north into a room with no exit
+ * south on each of its floors, and starts at the lower one. Both of
+ * those rooms lead south into the elevator, as in the Clockwork Tower. Items are
+ * scattered at random, and NPCs wander along long routes through the
+ * rooms of a floor. The player starts in the first room of the bottom
+ * floor.
+ */
+public class TowerGenerator {
+    private static final String[] DESCRIPTIONS = {
+            "in a narrow corridor", "in a dusty storeroom", "in a room full of ticking gears",
+            "in a quiet study", "in a cramped workshop", "in an empty hall", "in a cold stairwell",
+            "in a room lined with clocks"
+    };
+    private static final Item[] ITEMS = {
+            new Item("gold_coin", 0, true, false), new Item("platinum_piece", 2, true, false),
+            new Item("iron_sword", 3, true, false), new Item("oil_can", 2, true, true),
+            new Item("crate", 0, false, false), new Item("cog", 1, true, false)
+    };
+
+    private final int floors;               // The number of floors
+    private final int roomsPerFloor;        // The number of rooms on each floor, not counting elevators
+    private final int width;                // The number of rooms in each row of a floor
+    private final int npcCount;             // The number of NPCs
+    private final int routeLength;          // The number of rooms in each NPC's route
+    private final double itemChance;        // The chance of each room starting with an item
+    private final long seed;                // The seed the tower is made from
+
+    /**
+     * Create a generator for towers of a given size.
+     * @param floors The number of floors.
+     * @param roomsPerFloor The number of rooms on each floor, not counting elevators.
+     *                      There must be at least 2 if there is more than one floor.
+     * @param npcCount The number of NPCs.
+     * @param routeLength The number of rooms in each NPC's route.
+     * @param itemChance The chance of each room starting with an item, between 0 and 1.
+     * @param seed The seed the tower is made from.
+     */
+    public TowerGenerator(int floors, int roomsPerFloor, int npcCount, int routeLength, double itemChance, long seed) {
+        if (floors < 1 || roomsPerFloor < 1 || (floors > 1 && roomsPerFloor < 2)) {
+            throw new IllegalArgumentException("A tower needs at least one room, and two on each floor if it has more than one");
+        }
+        this.floors = floors;
+        this.roomsPerFloor = roomsPerFloor;
+        width = Math.max(Math.min(2, roomsPerFloor), (int) Math.ceil(Math.sqrt(roomsPerFloor)));
+        this.npcCount = npcCount;
+        this.routeLength = routeLength;
+        this.itemChance = itemChance;
+        this.seed = seed;
+    }
+
+    /**
+     * Make the tower.
+     * @return The template of the tower.
+     */
+    public WorldTemplate generate() {
+        Random random = new Random(seed);
+        WorldTemplate.Builder tower = new WorldTemplate.Builder();
+
+        for (int floor = 0; floor < floors; floor++) {
+            for (int i = 0; i < roomsPerFloor; i++) {
+                tower.addRoom("f" + floor + "r" + i, DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)], false);
+            }
+        }
+        for (int floor = 0; floor < floors; floor++) {
+            for (int i = 0; i < roomsPerFloor; i++) {
+                int room = getRoomId(floor, i);
+                for (int d = 0; d < Direction.COUNT; d++) {
+                    int neighbor = getNeighbor(i, Direction.fromOrdinal(d));
+                    if (neighbor >= 0) {
+                        tower.setExit(room, Direction.fromOrdinal(d), getRoomId(floor, neighbor));
+                    }
+                }
+                if (random.nextDouble() < itemChance) {
+                    tower.addItem(room, ITEMS[random.nextInt(ITEMS.length)]);
+                }
+            }
+        }
+
+        // the elevator between floor and floor + 1 uses a different room
+        // from the elevator below it, so their exits don't clash, and both
+        // landings lead into it, so it can be ridden down as well as up
+        for (int floor = 0; floor + 1 < floors; floor++) {
+            int elevator = tower.addElevator("lift" + floor, "in an elevator", false, 1);
+            int lower = getRoomId(floor, getShaft(floor));
+            int upper = getRoomId(floor + 1, getShaft(floor));
+            tower.addFloorExit(elevator, lower);
+            tower.addFloorExit(elevator, upper);
+            tower.setExit(elevator, Direction.NORTH, lower);
+            tower.setExit(lower, Direction.SOUTH, elevator);
+            tower.setExit(upper, Direction.SOUTH, elevator);
+        }
+
+        for (int i = 0; i < npcCount; i++) {
+            tower.addNpc("npc" + i, createRoute(random));
+        }
+        tower.setStartRoom(getRoomId(0, 0));
+        return tower.build();
+    }
+
+    /**
+     * Return the id of a room.
+     * @param floor The floor the room is on, starting at 0.
+     * @param index The position of the room on its floor.
+     * @return The id of the room.
+     */
+    public int getRoomId(int floor, int index) {
+        return floor * roomsPerFloor + index;
+    }
+
+    /**
+     * Return the position of the room, among those on a floor with no
+     * exit south, that the elevator from that floor to the one above it
+     * leads into. There are always at least two such rooms.
+     */
+    private int getShaft(int floor) {
+        return roomsPerFloor - width + floor % width;
+    }
+
+    /**
+     * Return the position of the room next to a room on the same floor.
+     * @return The position of the neighbouring room, or -1 if there isn't one.
+     */
+    private int getNeighbor(int index, Direction direction) {
+        switch (direction) {
+            case WEST:
+                return index % width > 0 ? index - 1 : -1;
+            case EAST:
+                return index % width < width - 1 && index + 1 < roomsPerFloor ? index + 1 : -1;
+            case NORTH:
+                return index >= width ? index - width : -1;
+            default:
+                return index + width < roomsPerFloor ? index + width : -1;
+        }
+    }
+
+    /**
+     * Make a random route through the rooms of one floor, each room
+     * next to the one before it. Where the way chosen has no room, the
+     * NPC stays where it is for that step.
+     */
+    private int[] createRoute(Random random) {
+        int floor = random.nextInt(floors);
+        int index = random.nextInt(roomsPerFloor);
+        int[] route = new int[Math.max(1, routeLength)];
+        for (int step = 0; step < route.length; step++) {
+            route[step] = getRoomId(floor, index);
+            int next = getNeighbor(index, Direction.fromOrdinal(random.nextInt(Direction.COUNT)));
+            if (next >= 0) {
+                index = next;
+            }
+        }
+        return route;
+    }
+
+    /**
+     * @return The number of rooms in each row of a floor.
+     */
+    public int getWidth() {
+        return width;
+    }
+}
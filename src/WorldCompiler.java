@@ -0,0 +1,305 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+/**
+ * This class reads a world file, which describes a map's rooms, exits,
+ * elevator floors, items and NPCs, and turns it into a WorldTemplate.
+ * <p>
+ * Run on its own, it compiles a world file into a binary world image,
+ * which the game loads instead of the world file when it is present.
+ * The format of world files is described at the top of tower.world.
+ */
+public class WorldCompiler {
+    private final String source;                        // The name of the world file, for error messages
+    private final WorldTemplate.Builder world;          // The world being put together
+    private final HashMap<String, Integer> roomIds;     // The ids of the rooms defined so far, by name
+    private final HashMap<String, Integer> routeIds;    // The positions of the routes defined so far, by name
+    private final LinkedHashMap<Integer, Integer> elevatorLines;    // The line each elevator was defined on, by id, in order
+    private int lineNumber;                             // The line of the world file being compiled
+
+    /**
+     * Create a compiler for a world file.
+     * @param source The name of the world file, for error messages.
+     */
+    private WorldCompiler(String source) {
+        this.source = source;
+        world = new WorldTemplate.Builder();
+        roomIds = new HashMap<>();
+        routeIds = new HashMap<>();
+        elevatorLines = new LinkedHashMap<>();
+        lineNumber = 0;
+    }
+
+    /**
+     * Compile a world file into a world template.
+     * @param reader The contents of the world file.
+     * @param source The name of the world file, for error messages.
+     * @return The world's template.
+     * @throws IOException If the world file could not be read, or is not valid.
+     */
+    public static WorldTemplate compile(Reader reader, String source) throws IOException {
+        WorldCompiler compiler = new WorldCompiler(source);
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            compiler.lineNumber++;
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                compiler.compileLine(line);
+            }
+        }
+        if (compiler.world.getRoomCount() == 0) {
+            throw new IOException(source + ": the world has no rooms");
+        }
+        compiler.checkElevators();
+        return compiler.world.build();
+    }
+
+    /**
+     * Add what a line of the world file defines to the world.
+     */
+    private void compileLine(String line) throws IOException {
+        String[] words = line.split("\\s+");
+        switch (words[0]) {
+            case "room":
+                expectWords(words, 4);
+                addRoom(words[1], world.addRoom(words[1], rest(line, 3), isDark(words[2])));
+                break;
+            case "elevator":
+                expectWords(words, 5);
+                int elevator = world.addElevator(words[1], rest(line, 4), isDark(words[2]), number(words[3]));
+                addRoom(words[1], elevator);
+                elevatorLines.put(elevator, lineNumber);
+                break;
+            case "exit":
+                expectWords(words, 4);
+                world.setExit(room(words[1]), direction(words[2]), room(words[3]));
+                break;
+            case "floor":
+                expectWords(words, 3);
+                if (!world.isElevator(room(words[1]))) {
+                    throw error("room " + words[1] + " is not an elevator");
+                }
+                world.addFloorExit(room(words[1]), room(words[2]));
+                break;
+            case "item":
+                expectWords(words, 4);
+                boolean obtainable = false;
+                boolean usable = false;
+                for (int i = 4; i < words.length; i++) {
+                    if (words[i].equals("obtainable")) {
+                        obtainable = true;
+                    } else if (words[i].equals("usable")) {
+                        usable = true;
+                    } else {
+                        throw error("unknown item property " + words[i]);
+                    }
+                }
+                int weight = number(words[3]);
+                if (weight < 0 || weight > Short.MAX_VALUE) {
+                    throw error("item weight " + weight + " is not between 0 and " + Short.MAX_VALUE);
+                }
+                try {
+                    world.addItem(room(words[1]), new Item(words[2], weight, obtainable, usable));
+                } catch (IllegalArgumentException e) {
+                    throw error(e.getMessage());
+                }
+                break;
+            case "route":
+                expectWords(words, 4);
+                if (routeIds.put(words[1], world.addRoute(route(words))) != null) {
+                    throw error("route " + words[1] + " is defined twice");
+                }
+                break;
+            case "npc":
+                expectWords(words, 3);
+                if (words.length == 4 && words[2].equals("follows")) {
+                    Integer routeId = routeIds.get(words[3]);
+                    if (routeId == null) {
+                        throw error("unknown route " + words[3]);
+                    }
+                    world.addNpc(words[1], routeId);
+                } else {
+                    int[] route = new int[words.length - 2];
+                    for (int i = 0; i < route.length; i++) {
+                        route[i] = room(words[i + 2]);
+                    }
+                    world.addNpc(words[1], route);
+                }
+                break;
+            case "start":
+                expectWords(words, 2);
+                world.setStartRoom(room(words[1]));
+                break;
+            default:
+                throw error("unknown definition " + words[0]);
+        }
+    }
+
+    /**
+     * Check that every elevator starts at one of its floors, pointing
+     * the error at the line the elevator was defined on.
+     */
+    private void checkElevators() throws IOException {
+        for (int elevator : elevatorLines.keySet()) {
+            int floorCount = world.getFloorCount(elevator);
+            int startingFloor = world.getStartingFloorNumber(elevator);
+            if (startingFloor < 1 || startingFloor > floorCount) {
+                lineNumber = elevatorLines.get(elevator);
+                throw error("elevator starts at floor " + startingFloor + " but has "
+                        + floorCount + (floorCount == 1 ? " floor" : " floors"));
+            }
+        }
+    }
+
+    /**
+     * Record the id of a room that has just been defined.
+     */
+    private void addRoom(String name, int id) throws IOException {
+        if (roomIds.put(name, id) != null) {
+            throw error("room " + name + " is defined twice");
+        }
+    }
+
+    /**
+     * Return the id of a room that has already been defined.
+     */
+    private int room(String name) throws IOException {
+        Integer id = roomIds.get(name);
+        if (id == null) {
+            throw error("unknown room " + name);
+        }
+        return id;
+    }
+
+    /**
+     * Return the route a route line defines, from its mode and its
+     * rooms, each followed by :turns if the route is scheduled.
+     */
+    private Route route(String[] words) throws IOException {
+        Route.Mode mode;
+        switch (words[2]) {
+            case "once":
+                mode = Route.Mode.ONCE;
+                break;
+            case "loop":
+                mode = Route.Mode.LOOP;
+                break;
+            case "pingpong":
+                mode = Route.Mode.PING_PONG;
+                break;
+            case "scheduled":
+                mode = Route.Mode.SCHEDULED;
+                break;
+            default:
+                throw error("unknown route mode " + words[2]);
+        }
+
+        int[] rooms = new int[words.length - 3];
+        int[] turns = mode == Route.Mode.SCHEDULED ? new int[rooms.length] : null;
+        for (int i = 0; i < rooms.length; i++) {
+            String step = words[i + 3];
+            int colon = step.indexOf(':');
+            if ((colon >= 0) != (turns != null)) {
+                throw error(turns != null ? "expected room:turns, not " + step
+                        : "only scheduled routes have turns, not " + step);
+            }
+            if (turns != null) {
+                turns[i] = number(step.substring(colon + 1));
+                step = step.substring(0, colon);
+            }
+            rooms[i] = room(step);
+        }
+        try {
+            return new Route(mode, rooms, turns);
+        } catch (IllegalArgumentException e) {
+            throw error(e.getMessage());
+        }
+    }
+
+    /**
+     * Return the direction with a given name.
+     */
+    private Direction direction(String name) throws IOException {
+        Direction direction = Direction.fromName(name);
+        if (direction == null) {
+            throw error("unknown direction " + name);
+        }
+        return direction;
+    }
+
+    /**
+     * Return whether a room is dark, from the word "dark" or "lit".
+     */
+    private boolean isDark(String word) throws IOException {
+        if (!word.equals("dark") && !word.equals("lit")) {
+            throw error("expected lit or dark, not " + word);
+        }
+        return word.equals("dark");
+    }
+
+    /**
+     * Return the value of a number in the world file.
+     */
+    private int number(String word) throws IOException {
+        try {
+            return Integer.parseInt(word);
+        } catch (NumberFormatException e) {
+            throw error("expected a number, not " + word);
+        }
+    }
+
+    /**
+     * Check that a line has at least a given number of words.
+     */
+    private void expectWords(String[] words, int count) throws IOException {
+        if (words.length < count) {
+            throw error(words[0] + " needs at least " + (count - 1) + " values");
+        }
+    }
+
+    /**
+     * Return the rest of a line, starting at a given word.
+     */
+    private static String rest(String line, int firstWord) {
+        String[] parts = line.split("\\s+", firstWord + 1);
+        return parts[firstWord];
+    }
+
+    /**
+     * Create an error pointing at the line being compiled.
+     */
+    private IOException error(String message) {
+        return new IOException(source + ":" + lineNumber + ": " + message);
+    }
+
+    /**
+     * Compile a world file into a binary world image.
+     * @param args The world file (default src/tower.world), and the image
+     *             to write (default: the world file's name ending in .bin).
+     */
+    public static void main(String[] args) throws IOException {
+        Path source = Paths.get(args.length > 0 ? args[0] : "src/tower.world");
+        Path image = args.length > 1 ? Paths.get(args[1])
+                : source.resolveSibling(source.getFileName().toString().replaceFirst("\\.world$", "") + ".bin");
+
+        WorldTemplate template;
+        try (Reader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            template = compile(reader, source.getFileName().toString());
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(image)))) {
+            template.write(out);
+        }
+        System.out.println("Compiled " + template.getRoomCount() + " rooms from " + source + " to " + image
+                + " (" + Files.size(image) + " bytes)");
+    }
+}
@@ -0,0 +1,644 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * This class holds the parts of a game's map that are the same in
+ * every game: its rooms, how they are connected, and the items they
+ * start with. It can't be changed once built, so a single template
+ * is shared by every game being played, and each game creates its
+ * own lightweight rooms from it. It also holds the NPCs and the
+ * routes they follow.
+ * <p>
+ * Rooms can be found by their id, their position in the world, or by
+ * their name.
+ * <p>
+ * Templates are put together with a WorldTemplate.Builder, usually by
+ * a WorldCompiler reading a world file. A template can be written as
+ * a binary image, which is much faster to load than the world file.
+ */
+public class WorldTemplate {
+    private static final int IMAGE_MAGIC = 0x43575731;  // "CWW1", marks the start of a world image
+    private static final int IMAGE_VERSION = 6;         // The version of the world image format
+    private static final int SHARED_PATH_TABLES = 32;   // The most tables of paths shared by games
+
+    private final RoomTemplate[] rooms;     // The rooms of the world, by id
+    private final HashMap<String, Integer> roomIds;     // The ids of the rooms, by name
+    private final HashMap<String, Integer> typedRoomIds;    // The ids of the rooms, by name in lower case, as the player types it
+    private final int startRoom;            // The id of the room the player starts in
+    private final Route[] routes;           // The routes NPCs travel along, each shared by any number of NPCs
+    private final String[] npcNames;        // The names of the NPCs
+    private final int[] npcRoutes;          // The position in routes of the route each NPC travels along
+    private int[] entranceStarts;           // Where each room's entrances start in entrances, by id, null until needed
+    private int[] entrances;                // The exits leading into each room, as room id * Direction.COUNT + direction
+    private final LinkedHashMap<Integer, RoomPaths.Table> pathTables;   // Paths along the template's exits, by the id of the room they lead to
+
+    /**
+     * Create a world template.
+     * @param rooms The rooms of the world, by id.
+     * @param startRoom The id of the room the player starts in.
+     * @param routes The routes NPCs travel along.
+     * @param npcNames The names of the NPCs.
+     * @param npcRoutes The position in routes of the route each NPC travels along.
+     */
+    private WorldTemplate(RoomTemplate[] rooms, int startRoom, Route[] routes, String[] npcNames, int[] npcRoutes) {
+        this.rooms = rooms;
+        roomIds = new HashMap<>();
+        typedRoomIds = new HashMap<>();
+        for (RoomTemplate room : rooms) {
+            roomIds.put(room.getName(), room.getId());
+            typedRoomIds.putIfAbsent(room.getName().toLowerCase(), room.getId());
+        }
+        this.startRoom = startRoom;
+        this.routes = routes;
+        this.npcNames = npcNames;
+        this.npcRoutes = npcRoutes;
+        pathTables = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Load a world from the files next to this class. The binary
+     * image name.bin is used if there is one, otherwise the world
+     * file name.world is compiled.
+     * @param name The name of the world.
+     * @return The world's template.
+     * @throws IOException If neither file could be read.
+     */
+    public static WorldTemplate load(String name) throws IOException {
+        InputStream image = WorldTemplate.class.getResourceAsStream(name + ".bin");
+        if (image != null) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(image))) {
+                return read(in);
+            } catch (IOException e) {
+                System.err.println(name + ".bin can't be loaded, using " + name + ".world: " + e.getMessage());
+            }
+        }
+
+        InputStream source = WorldTemplate.class.getResourceAsStream(name + ".world");
+        if (source == null) {
+            throw new IOException(name + ".world not found");
+        }
+        try (InputStreamReader reader = new InputStreamReader(source, StandardCharsets.UTF_8)) {
+            return WorldCompiler.compile(reader, name + ".world");
+        }
+    }
+
+    /**
+     * Create the NPCs for a game, each in the first room of its route.
+     * @param world The rooms of the game, by id.
+     * @return The NPCs.
+     */
+    public NPCs createNpcs(RoomRegistry world) {
+        ArrayList<NPC> npcs = new ArrayList<>();
+        for (int i = 0; i < npcNames.length; i++) {
+            npcs.add(new NPC(npcNames[i], npcRoutes[i], world));
+        }
+        return new NPCs(npcs);
+    }
+
+    /**
+     * Return a route NPCs travel along.
+     * @param number The position of the route.
+     * @return The route.
+     */
+    public Route getRoute(int number) {
+        return routes[number];
+    }
+
+    /**
+     * @return The number of routes NPCs travel along.
+     */
+    public int getRouteCount() {
+        return routes.length;
+    }
+
+    /**
+     * Return the number of rooms in the world.
+     * @return The number of rooms.
+     */
+    public int getRoomCount() {
+        return rooms.length;
+    }
+
+    /**
+     * Return the template of a room.
+     * @param id The id of the room.
+     * @return The room's template.
+     */
+    public RoomTemplate getRoom(int id) {
+        return rooms[id];
+    }
+
+    /**
+     * Return the id of the room with a given name.
+     * @param name The name of the room.
+     * @return The id of the room, or -1 if there is no room with that name.
+     */
+    public int getRoomId(String name) {
+        Integer id = roomIds.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Return the id of the room with a name typed by the player,
+     * who types in lower case.
+     * @param name The name of the room, in any case.
+     * @return The id of the room, or -1 if there is no room with that name.
+     */
+    public int getTypedRoomId(String name) {
+        Integer id = typedRoomIds.get(name.toLowerCase());
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Return where each room's entrances start in the list of entrances,
+     * by the id of the room, with one more for where the last room's end.
+     * @return Where each room's entrances start.
+     */
+    public synchronized int[] getEntranceStarts() {
+        if (entranceStarts == null) {
+            findEntrances();
+        }
+        return entranceStarts;
+    }
+
+    /**
+     * Return the exits that lead into each room, grouped by the room they
+     * lead into, as the id of the room they lead from * Direction.COUNT
+     * + the ordinal of their direction.
+     * @return The entrances of the rooms.
+     */
+    public synchronized int[] getEntrances() {
+        if (entrances == null) {
+            findEntrances();
+        }
+        return entrances;
+    }
+
+    /**
+     * Group the exits of every room by the room they lead into.
+     */
+    private void findEntrances() {
+        int[] starts = new int[rooms.length + 1];
+        for (RoomTemplate room : rooms) {
+            for (int i = 0; i < Direction.COUNT; i++) {
+                int to = room.getExit(Direction.fromOrdinal(i));
+                if (to >= 0) {
+                    starts[to + 1]++;
+                }
+            }
+        }
+        for (int id = 0; id < rooms.length; id++) {
+            starts[id + 1] += starts[id];
+        }
+        int[] found = new int[starts[rooms.length]];
+        int[] next = Arrays.copyOf(starts, rooms.length);
+        for (RoomTemplate room : rooms) {
+            for (int i = 0; i < Direction.COUNT; i++) {
+                int to = room.getExit(Direction.fromOrdinal(i));
+                if (to >= 0) {
+                    found[next[to]++] = room.getId() * Direction.COUNT + i;
+                }
+            }
+        }
+        entranceStarts = starts;
+        entrances = found;
+    }
+
+    /**
+     * Return the shortest paths to a room along the template's exits,
+     * shared by every game whose exits haven't changed. The tables of
+     * the last few rooms asked about are kept.
+     * @param target The id of the room the paths lead to.
+     * @return The paths.
+     */
+    public synchronized RoomPaths.Table getPathTable(int target) {
+        RoomPaths.Table table = pathTables.get(target);
+        if (table == null) {
+            table = RoomPaths.Table.build(this, target, null);
+            pathTables.put(target, table);
+            if (pathTables.size() > SHARED_PATH_TABLES) {
+                Iterator<RoomPaths.Table> oldest = pathTables.values().iterator();
+                oldest.next();
+                oldest.remove();
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Return the id of the room the player starts in.
+     * @return The id of the starting room.
+     */
+    public int getStartRoom() {
+        return startRoom;
+    }
+
+    /**
+     * Write the template as a binary image, which can be loaded
+     * without compiling the world file.
+     * @param out The stream to write to.
+     * @throws IOException If the image could not be written.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(IMAGE_MAGIC);
+        out.writeByte(IMAGE_VERSION);
+        out.writeInt(rooms.length);
+        out.writeInt(startRoom);
+
+        // each type of item is written once, and rooms refer to it by its position
+        HashMap<String, Integer> itemTypeIds = new HashMap<>();
+        ArrayList<Item> itemTypes = new ArrayList<>();
+        for (RoomTemplate room : rooms) {
+            addItemTypes(room.getItems().getObtainable(), itemTypeIds, itemTypes);
+            addItemTypes(room.getItems().getObjects(), itemTypeIds, itemTypes);
+        }
+        out.writeInt(itemTypes.size());
+        for (Item item : itemTypes) {
+            item.write(out);
+        }
+
+        for (RoomTemplate room : rooms) {
+            out.writeUTF(room.getName());
+            out.writeUTF(room.getDescription());
+            out.writeBoolean(room.getDark());
+            for (int i = 0; i < Direction.COUNT; i++) {
+                out.writeInt(room.getExit(Direction.fromOrdinal(i)));
+            }
+            RoomItems.View obtainable = room.getItems().getObtainable();
+            RoomItems.View objects = room.getItems().getObjects();
+            out.writeInt(obtainable.size() + objects.size());
+            writeItems(out, obtainable, itemTypeIds);
+            writeItems(out, objects, itemTypeIds);
+            out.writeInt(room.isElevator() ? room.getFloorCount() : -1);
+            for (int floor = 1; floor <= room.getFloorCount(); floor++) {
+                out.writeInt(room.getFloorExit(floor));
+            }
+            out.writeInt(room.getStartingFloorNumber());
+        }
+        out.writeInt(routes.length);
+        for (Route route : routes) {
+            route.write(out);
+        }
+        out.writeInt(npcNames.length);
+        for (int i = 0; i < npcNames.length; i++) {
+            out.writeUTF(npcNames[i]);
+            out.writeInt(npcRoutes[i]);
+        }
+    }
+
+    /**
+     * Give each type of item in a room that hasn't been seen before a position.
+     */
+    private static void addItemTypes(RoomItems.View items, HashMap<String, Integer> itemTypeIds,
+                                     ArrayList<Item> itemTypes) {
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.getItem(i);
+            if (!itemTypeIds.containsKey(item.getName())) {
+                itemTypeIds.put(item.getName(), itemTypes.size());
+                itemTypes.add(item);
+            }
+        }
+    }
+
+    /**
+     * Write the position of each type of item in a room, and how many there are.
+     */
+    private static void writeItems(DataOutputStream out, RoomItems.View items, HashMap<String, Integer> itemTypeIds)
+            throws IOException {
+        for (int i = 0; i < items.size(); i++) {
+            out.writeInt(itemTypeIds.get(items.getItem(i).getName()));
+            out.writeInt(items.getCount(i));
+        }
+    }
+
+    /**
+     * Read a template from a binary image that was written with write.
+     * @param in The stream to read from.
+     * @return The template.
+     * @throws IOException If the image is not valid.
+     */
+    public static WorldTemplate read(DataInputStream in) throws IOException {
+        if (in.readInt() != IMAGE_MAGIC) {
+            throw new IOException("Not a world image");
+        }
+        int version = in.readByte();
+        if (version != IMAGE_VERSION) {
+            throw new IOException("Unsupported world image version " + version);
+        }
+
+        int roomCount = in.readInt();
+        if (roomCount <= 0) {
+            throw new IOException("Invalid room count " + roomCount);
+        }
+        int startRoom = readRoomId(in, roomCount);
+        int itemTypeCount = in.readInt();
+        if (itemTypeCount < 0) {
+            throw new IOException("Invalid item type count " + itemTypeCount);
+        }
+        Item[] itemTypes = new Item[itemTypeCount];
+        for (int i = 0; i < itemTypes.length; i++) {
+            itemTypes[i] = Item.read(in);
+        }
+        RoomTemplate[] rooms = new RoomTemplate[roomCount];
+        for (int id = 0; id < roomCount; id++) {
+            String name = in.readUTF();
+            String description = in.readUTF();
+            boolean dark = in.readBoolean();
+            int[] exits = new int[Direction.COUNT];
+            for (int i = 0; i < Direction.COUNT; i++) {
+                exits[i] = in.readInt();
+                if (exits[i] < -1 || exits[i] >= roomCount) {
+                    throw new IOException("Room " + name + " has an exit to an unknown room " + exits[i]);
+                }
+            }
+            RoomItems items = new RoomItems();
+            int itemCount = in.readInt();
+            for (int i = 0; i < itemCount; i++) {
+                int itemType = in.readInt();
+                if (itemType < 0 || itemType >= itemTypes.length) {
+                    throw new IOException("Room " + name + " has an unknown item type " + itemType);
+                }
+                items.add(itemTypes[itemType], in.readInt());
+            }
+            int[] floorExits = null;
+            int floorCount = in.readInt();
+            if (floorCount >= 0) {
+                floorExits = new int[floorCount];
+                for (int floor = 0; floor < floorCount; floor++) {
+                    floorExits[floor] = readRoomId(in, roomCount);
+                }
+            }
+            int startingFloor = in.readInt();
+            if (floorExits != null && (startingFloor < 1 || startingFloor > floorCount)) {
+                throw new IOException("Elevator " + name + " starts at floor " + startingFloor
+                        + " but has " + floorCount + " floors");
+            }
+            rooms[id] = new RoomTemplate(id, name, description, dark, exits, items, floorExits, startingFloor);
+        }
+
+        int routeCount = in.readInt();
+        if (routeCount < 0) {
+            throw new IOException("Invalid route count " + routeCount);
+        }
+        Route[] routes = new Route[routeCount];
+        for (int i = 0; i < routes.length; i++) {
+            routes[i] = Route.read(in, roomCount);
+        }
+        int npcCount = in.readInt();
+        if (npcCount < 0) {
+            throw new IOException("Invalid NPC count " + npcCount);
+        }
+        String[] npcNames = new String[npcCount];
+        int[] npcRoutes = new int[npcCount];
+        for (int i = 0; i < npcCount; i++) {
+            npcNames[i] = in.readUTF();
+            npcRoutes[i] = in.readInt();
+            if (npcRoutes[i] < 0 || npcRoutes[i] >= routes.length) {
+                throw new IOException("NPC " + npcNames[i] + " has an unknown route");
+            }
+        }
+        return new WorldTemplate(rooms, startRoom, routes, npcNames, npcRoutes);
+    }
+
+    /**
+     * Read the id of a room from an image, checking that the world has it.
+     */
+    private static int readRoomId(DataInputStream in, int roomCount) throws IOException {
+        int id = in.readInt();
+        if (id < 0 || id >= roomCount) {
+            throw new IOException("Unknown room " + id);
+        }
+        return id;
+    }
+
+    /**
+     * This class is used to put together a world template, room
+     * by room. Rooms are given ids in the order they are added.
+     */
+    public static class Builder {
+        private final ArrayList<String> names;
+        private final ArrayList<String> descriptions;
+        private final ArrayList<Boolean> darks;
+        private final ArrayList<int[]> exits;
+        private final ArrayList<RoomItems> items;                  // null for rooms without items
+        private final HashMap<String, Item> itemTypes;             // The type of each item added so far, by name
+        private final ArrayList<ArrayList<Integer>> floorExits;    // null for rooms that aren't elevators
+        private final ArrayList<Integer> startingFloors;
+        private final ArrayList<String> npcNames;
+        private final ArrayList<Route> routes;
+        private final ArrayList<Integer> npcRoutes;
+        private int startRoom;
+
+        /**
+         * Create a builder for a world with no rooms.
+         */
+        public Builder() {
+            names = new ArrayList<>();
+            descriptions = new ArrayList<>();
+            darks = new ArrayList<>();
+            exits = new ArrayList<>();
+            items = new ArrayList<>();
+            itemTypes = new HashMap<>();
+            floorExits = new ArrayList<>();
+            startingFloors = new ArrayList<>();
+            npcNames = new ArrayList<>();
+            routes = new ArrayList<>();
+            npcRoutes = new ArrayList<>();
+            startRoom = 0;
+        }
+
+        /**
+         * Add a room to the world.
+         * @param name The name of the room.
+         * @param description The room's description.
+         * @param dark Whether the room starts off dark.
+         * @return The id of the room.
+         */
+        public int addRoom(String name, String description, boolean dark) {
+            return add(name, description, dark, null, 0);
+        }
+
+        /**
+         * Add an elevator to the world.
+         * @param name The name of the elevator.
+         * @param description The elevator's description.
+         * @param dark Whether the elevator starts off dark.
+         * @param startingFloorNumber The floor at which the elevator starts.
+         * @return The id of the elevator.
+         */
+        public int addElevator(String name, String description, boolean dark, int startingFloorNumber) {
+            return add(name, description, dark, new ArrayList<>(), startingFloorNumber);
+        }
+
+        private int add(String name, String description, boolean dark, ArrayList<Integer> floors, int startingFloor) {
+            names.add(name);
+            descriptions.add(description);
+            darks.add(dark);
+            int[] noExits = new int[Direction.COUNT];
+            Arrays.fill(noExits, -1);
+            exits.add(noExits);
+            items.add(null);
+            floorExits.add(floors);
+            startingFloors.add(startingFloor);
+            return names.size() - 1;
+        }
+
+        /**
+         * Define an exit from a room.
+         * @param room The id of the room.
+         * @param direction The direction of the exit.
+         * @param neighbor The id of the room the exit leads to.
+         */
+        public void setExit(int room, Direction direction, int neighbor) {
+            exits.get(room)[direction.ordinal()] = neighbor;
+        }
+
+        /**
+         * Add a floor to an elevator. Floors are numbered from 1
+         * in the order they are added.
+         * @param elevator The id of the elevator.
+         * @param room The id of the room at that floor.
+         * @throws IllegalArgumentException If the room isn't an elevator.
+         */
+        public void addFloorExit(int elevator, int room) {
+            if (!isElevator(elevator)) {
+                throw new IllegalArgumentException("room " + names.get(elevator) + " is not an elevator");
+            }
+            floorExits.get(elevator).add(room);
+        }
+
+        /**
+         * Return whether a room added so far is an elevator.
+         * @param room The id of the room.
+         * @return Whether or not the room is an elevator.
+         */
+        public boolean isElevator(int room) {
+            return floorExits.get(room) != null;
+        }
+
+        /**
+         * Return the number of floors added to an elevator so far.
+         * @param elevator The id of the elevator.
+         * @return The number of floors.
+         */
+        public int getFloorCount(int elevator) {
+            return floorExits.get(elevator).size();
+        }
+
+        /**
+         * Return the floor an elevator starts at.
+         * @param elevator The id of the elevator.
+         * @return The starting floor number.
+         */
+        public int getStartingFloorNumber(int elevator) {
+            return startingFloors.get(elevator);
+        }
+
+        /**
+         * Add an item to a room. Every item with the same name
+         * shares the first one added as its type.
+         * @param room The id of the room.
+         * @param item The item.
+         * @throws IllegalArgumentException If an item with the same name
+         *                                  but different properties was added before.
+         */
+        public void addItem(int room, Item item) {
+            Item type = itemTypes.get(item.getName());
+            if (type == null) {
+                itemTypes.put(item.getName(), item);
+                type = item;
+            } else if (!type.isSameType(item)) {
+                throw new IllegalArgumentException("item " + item.getName() + " is defined differently before");
+            }
+            if (items.get(room) == null) {
+                items.set(room, new RoomItems());
+            }
+            items.get(room).add(type);
+        }
+
+        /**
+         * Add a route that any number of NPCs can travel along.
+         * @param route The route.
+         * @return The position of the route.
+         */
+        public int addRoute(Route route) {
+            routes.add(route);
+            return routes.size() - 1;
+        }
+
+        /**
+         * Add an NPC to the world that travels along a route once.
+         * @param name The name of the NPC.
+         * @param route The ids of the rooms it travels along, starting room first.
+         */
+        public void addNpc(String name, int[] route) {
+            addNpc(name, addRoute(new Route(Route.Mode.ONCE, route)));
+        }
+
+        /**
+         * Add an NPC to the world that travels along a route added before.
+         * @param name The name of the NPC.
+         * @param route The position of the route.
+         */
+        public void addNpc(String name, int route) {
+            npcNames.add(name);
+            npcRoutes.add(route);
+        }
+
+        /**
+         * Return the number of rooms added so far.
+         * @return The number of rooms.
+         */
+        public int getRoomCount() {
+            return names.size();
+        }
+
+        /**
+         * Set the room the player starts in.
+         * @param room The id of the room.
+         */
+        public void setStartRoom(int room) {
+            startRoom = room;
+        }
+
+        /**
+         * Create the world template. Each room's details are let go of
+         * as soon as its template is created, so the builder can't be
+         * used afterwards.
+         * @return The template.
+         */
+        public WorldTemplate build() {
+            RoomTemplate[] rooms = new RoomTemplate[names.size()];
+            for (int i = 0; i < rooms.length; i++) {
+                int[] floors = null;
+                if (floorExits.get(i) != null) {
+                    floors = new int[floorExits.get(i).size()];
+                    for (int floor = 0; floor < floors.length; floor++) {
+                        floors[floor] = floorExits.get(i).get(floor);
+                    }
+                }
+                RoomItems roomItems = items.get(i) == null ? RoomItems.empty() : items.get(i);
+                rooms[i] = new RoomTemplate(i, names.get(i), descriptions.get(i), darks.get(i),
+                        exits.get(i), roomItems, floors, startingFloors.get(i));
+                exits.set(i, null);
+                items.set(i, null);
+            }
+            int[] routeNumbers = new int[npcRoutes.size()];
+            for (int i = 0; i < routeNumbers.length; i++) {
+                routeNumbers[i] = npcRoutes.get(i);
+            }
+            return new WorldTemplate(rooms, startRoom, routes.toArray(new Route[0]),
+                    npcNames.toArray(new String[0]), routeNumbers);
+        }
+    }
+}